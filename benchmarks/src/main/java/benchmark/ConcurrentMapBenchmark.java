@@ -0,0 +1,109 @@
+package benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import map.ChainHashMap;
+import map.ConcurrentChainHashMap;
+
+/**
+ * shared map under concurrent gets and puts: ChainHashMap behind one global
+ * lock versus the lock striped ConcurrentChainHashMap; vary threads with -t
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+@Threads(4)
+public class ConcurrentMapBenchmark {
+
+    @Param({ "GLOBAL_LOCK", "LOCK_STRIPED" })
+    public String variant;
+
+    @Param({ "1000000" })
+    public int size;
+
+    @Param({ "10" })
+    public int writePercent;
+
+    private map.Map<Long, Long> map;
+    private Long[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = KeyDistribution.UNIFORM.keys(size, MapBenchmark.SEED);
+        map = variant.equals("GLOBAL_LOCK") ? new LockedMap<>(new ChainHashMap<>()) : new ConcurrentChainHashMap<>();
+        for (Long key : keys) {
+            map.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public Long mixed() {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        Long key = keys[rand.nextInt(size)];
+        if (rand.nextInt(100) < writePercent) {
+            return map.put(key, key);
+        }
+        return map.get(key);
+    }
+
+    /**
+     * what callers do today: every operation synchronized on the map
+     */
+    private static final class LockedMap<K, V> implements map.Map<K, V> {
+        private final map.Map<K, V> map;
+
+        LockedMap(map.Map<K, V> map) {
+            this.map = map;
+        }
+
+        public synchronized int size() {
+            return map.size();
+        }
+
+        public synchronized V get(K key) {
+            return map.get(key);
+        }
+
+        public synchronized V put(K key, V value) {
+            return map.put(key, value);
+        }
+
+        public synchronized V remove(K key) {
+            return map.remove(key);
+        }
+
+        public synchronized boolean containsKey(K key) {
+            return map.containsKey(key);
+        }
+
+        public synchronized Iterable<K> keySet() {
+            return map.keySet();
+        }
+
+        public synchronized Iterable<V> valueSet() {
+            return map.valueSet();
+        }
+
+        public synchronized Iterable<map.Entry<K, V>> entrySet() {
+            return map.entrySet();
+        }
+    }
+}
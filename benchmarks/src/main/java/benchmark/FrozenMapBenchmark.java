@@ -0,0 +1,118 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bst.AvlTree;
+import bst.BTreeMap;
+import bst.FrozenSortedMap;
+import bst.RedBlackTree;
+import bst.SortedMap;
+import bst.TreeMap;
+
+/**
+ * read-only lookups: FrozenSortedMap (Eytzinger layout) versus binary search
+ * over a sorted array and the pointer-based trees, all built once from the
+ * same sorted keys
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class FrozenMapBenchmark {
+
+    public enum Layout {
+        EYTZINGER, BINARY_SEARCH, AVL_TREE, RED_BLACK_TREE, B_TREE
+    }
+
+    @Param({ "EYTZINGER", "BINARY_SEARCH", "AVL_TREE", "RED_BLACK_TREE", "B_TREE" })
+    public Layout layout;
+
+    @Param({ "UNIFORM", "ZIPFIAN" })
+    public KeyDistribution distribution;
+
+    @Param({ "1000", "100000", "10000000" })
+    public int size;
+
+    private SortedMap<Long, Long> map; // null for BINARY_SEARCH
+    private Long[] sortedKeys;
+    private Long[] sortedValues;
+    private Long[] keys;
+    private int[] order;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = distribution.keys(size, MapBenchmark.SEED);
+        order = distribution.accessOrder(size, MapBenchmark.ACCESS_COUNT, MapBenchmark.SEED + 1);
+        sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+        sortedValues = sortedKeys.clone();
+        switch (layout) {
+            case EYTZINGER:
+                map = FrozenSortedMap.fromSorted(sortedKeys, sortedValues);
+                break;
+            case BINARY_SEARCH:
+                map = null;
+                break;
+            case AVL_TREE:
+                map = AvlTree.fromSorted(sortedKeys, sortedValues);
+                break;
+            case RED_BLACK_TREE:
+                map = RedBlackTree.fromSorted(sortedKeys, sortedValues);
+                break;
+            case B_TREE:
+                map = new BTreeMap<>();
+                for (Long key : keys) {
+                    map.put(key, key);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(layout.toString());
+        }
+    }
+
+    private Long nextKey() {
+        Long key = keys[order[cursor]];
+        cursor = (cursor + 1) & (MapBenchmark.ACCESS_COUNT - 1);
+        return key;
+    }
+
+    @Benchmark
+    public Long get() {
+        Long key = nextKey();
+        if (map == null) {
+            int i = Arrays.binarySearch(sortedKeys, key);
+            return (i >= 0 ? sortedValues[i] : null);
+        }
+        return map.get(key);
+    }
+
+    @Benchmark
+    public Long floor() {
+        // greatest key <= a key just above an existing one, mostly a miss
+        Long key = nextKey() + 1;
+        if (map == null) {
+            int i = Arrays.binarySearch(sortedKeys, key);
+            i = (i >= 0 ? i : -(i + 1) - 1);
+            return (i >= 0 ? sortedValues[i] : null);
+        }
+        TreeMap.Entry<Long, Long> entry = map.floorEntry(key);
+        return (entry == null ? null : entry.getValue());
+    }
+}
@@ -0,0 +1,93 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import map.AbstractHashMap;
+import map.ChainHashMap;
+import map.HashStrategy;
+import map.LinearProbeHashMap;
+import map.RobinHoodHashMap;
+
+/**
+ * MAD (prime modulo) versus MIX (power of 2, murmur3 finalizer and bit mask)
+ * hashing in the AbstractHashMap implementations
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class HashingBenchmark {
+
+    @Param({ "CHAIN_HASH_MAP", "LINEAR_PROBE_HASH_MAP", "ROBIN_HOOD_HASH_MAP" })
+    public Implementation impl;
+
+    @Param({ "MAD", "MIX" })
+    public HashStrategy strategy;
+
+    @Param({ "UNIFORM", "SEQUENTIAL" })
+    public KeyDistribution distribution;
+
+    @Param({ "1000", "100000", "10000000" })
+    public int size;
+
+    private AbstractHashMap<Long, Long> map;
+    private Long[] keys;
+    private int[] order;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = distribution.keys(size, MapBenchmark.SEED);
+        order = distribution.accessOrder(size, MapBenchmark.ACCESS_COUNT, MapBenchmark.SEED + 1);
+        switch (impl) {
+            case CHAIN_HASH_MAP:
+                map = new ChainHashMap<>(17, strategy);
+                break;
+            case LINEAR_PROBE_HASH_MAP:
+                map = new LinearProbeHashMap<>(17, strategy);
+                break;
+            case ROBIN_HOOD_HASH_MAP:
+                map = new RobinHoodHashMap<>(17, strategy);
+                break;
+            default:
+                throw new IllegalArgumentException(impl + " is not a hash map");
+        }
+        for (Long key : keys) {
+            map.put(key, key);
+        }
+    }
+
+    private Long nextKey() {
+        Long key = keys[order[cursor]];
+        cursor = (cursor + 1) & (MapBenchmark.ACCESS_COUNT - 1);
+        return key;
+    }
+
+    @Benchmark
+    public Long get() {
+        return map.get(nextKey());
+    }
+
+    @Benchmark
+    public Long removeAndPut() {
+        Long key = nextKey();
+        Long value = map.remove(key);
+        map.put(key, value);
+        return value;
+    }
+}
@@ -0,0 +1,226 @@
+package benchmark;
+
+import java.util.Iterator;
+
+import map.ChainHashMap;
+import map.LinearProbeHashMap;
+import map.RobinHoodHashMap;
+import map.SkipList;
+import bst.AvlTree;
+import bst.BTreeMap;
+import bst.CachedSortedMap;
+import bst.ConcurrentSplayTree;
+import bst.RedBlackTree;
+import bst.SplayTree;
+import bst.TopDownRedBlackTree;
+
+/**
+ * every map.Map and bst.SortedMap implementation under benchmark, behind one
+ * adapter so that a single @Param can select it
+ */
+public enum Implementation {
+    CHAIN_HASH_MAP(false) {
+        @Override
+        public Target create(int n) {
+            return new MapTarget(new ChainHashMap<>());
+        }
+    },
+    LINEAR_PROBE_HASH_MAP(false) {
+        @Override
+        public Target create(int n) {
+            return new MapTarget(new LinearProbeHashMap<>());
+        }
+    },
+    ROBIN_HOOD_HASH_MAP(false) {
+        @Override
+        public Target create(int n) {
+            return new MapTarget(new RobinHoodHashMap<>());
+        }
+    },
+    SKIP_LIST(true) {
+        @Override
+        public Target create(int n) {
+            return new SkipListTarget(new SkipList<>(maxLevel(n)));
+        }
+    },
+    AVL_TREE(true) {
+        @Override
+        public Target create(int n) {
+            return new TreeTarget(new AvlTree<>());
+        }
+    },
+    RED_BLACK_TREE(true) {
+        @Override
+        public Target create(int n) {
+            return new TreeTarget(new RedBlackTree<>());
+        }
+    },
+    CACHED_RED_BLACK_TREE(true) {
+        @Override
+        public Target create(int n) {
+            return new TreeTarget(new CachedSortedMap<>(new RedBlackTree<Long, Long>()));
+        }
+    },
+    TOP_DOWN_RED_BLACK_TREE(true) {
+        @Override
+        public Target create(int n) {
+            return new TreeTarget(new TopDownRedBlackTree<>());
+        }
+    },
+    SPLAY_TREE(true) {
+        @Override
+        public Target create(int n) {
+            return new TreeTarget(new SplayTree<>());
+        }
+    },
+    CONCURRENT_SPLAY_TREE(true) {
+        @Override
+        public Target create(int n) {
+            return new TreeTarget(new ConcurrentSplayTree<>());
+        }
+    },
+    B_TREE(true) {
+        @Override
+        public Target create(int n) {
+            return new TreeTarget(new BTreeMap<>());
+        }
+    },
+    B_TREE_LINEAR_SEARCH(true) {
+        @Override
+        public Target create(int n) {
+            return new TreeTarget(new BTreeMap<>(16, BTreeMap.SearchMode.LINEAR));
+        }
+    };
+
+    private final boolean sorted;
+
+    Implementation(boolean sorted) {
+        this.sorted = sorted;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    public abstract Target create(int n);
+
+    private static int maxLevel(int n) {
+        // enough levels for n entries, as the default (16) only covers 2^16
+        return Math.max(16, 33 - Integer.numberOfLeadingZeros(n));
+    }
+
+    /**
+     * the operations a workload may issue
+     */
+    public interface Target {
+        Long get(Long key);
+
+        Long put(Long key, Long value);
+
+        Long remove(Long key);
+
+        int size();
+
+        /**
+         * @return number of entries with fromKey <= key < toKey, visited one by one
+         */
+        int range(Long fromKey, Long toKey);
+    }
+
+    private static int count(Iterable<?> view) {
+        if (view == null) {
+            throw new UnsupportedOperationException("subMap is not implemented");
+        }
+        int count = 0;
+        Iterator<?> it = view.iterator();
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        return count;
+    }
+
+    private static final class MapTarget implements Target {
+        private final map.Map<Long, Long> map;
+
+        MapTarget(map.Map<Long, Long> map) {
+            this.map = map;
+        }
+
+        public Long get(Long key) {
+            return map.get(key);
+        }
+
+        public Long put(Long key, Long value) {
+            return map.put(key, value);
+        }
+
+        public Long remove(Long key) {
+            return map.remove(key);
+        }
+
+        public int size() {
+            return map.size();
+        }
+
+        public int range(Long fromKey, Long toKey) {
+            throw new UnsupportedOperationException("hash maps are unordered");
+        }
+    }
+
+    private static final class SkipListTarget implements Target {
+        private final map.SortedMap<Long, Long> map;
+
+        SkipListTarget(map.SortedMap<Long, Long> map) {
+            this.map = map;
+        }
+
+        public Long get(Long key) {
+            return map.get(key);
+        }
+
+        public Long put(Long key, Long value) {
+            return map.put(key, value);
+        }
+
+        public Long remove(Long key) {
+            return map.remove(key);
+        }
+
+        public int size() {
+            return map.size();
+        }
+
+        public int range(Long fromKey, Long toKey) {
+            return count(map.subMap(fromKey, toKey));
+        }
+    }
+
+    private static final class TreeTarget implements Target {
+        private final bst.SortedMap<Long, Long> map;
+
+        TreeTarget(bst.SortedMap<Long, Long> map) {
+            this.map = map;
+        }
+
+        public Long get(Long key) {
+            return map.get(key);
+        }
+
+        public Long put(Long key, Long value) {
+            return map.put(key, value);
+        }
+
+        public Long remove(Long key) {
+            return map.remove(key);
+        }
+
+        public int size() {
+            return map.size();
+        }
+
+        public int range(Long fromKey, Long toKey) {
+            return count(map.subMap(fromKey, toKey));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * key populations and access patterns shared by all benchmarks
+ */
+public enum KeyDistribution {
+    /** random 64-bit keys, accessed uniformly */
+    UNIFORM,
+    /** random 64-bit keys, accessed with a zipfian skew (theta = 0.99) */
+    ZIPFIAN,
+    /** keys 0, 1, 2, ..., inserted and accessed in ascending order */
+    SEQUENTIAL,
+    /**
+     * keys inserted in ascending order whose Long.hashCode() collide in groups
+     * of COLLISION_GROUP, worst case for both hash tables and unbalanced or
+     * splaying trees
+     */
+    ADVERSARIAL;
+
+    public static final int COLLISION_GROUP = 32;
+
+    /**
+     * @return n distinct keys in insertion order
+     */
+    public Long[] keys(int n, long seed) {
+        long[] raw = new long[n];
+        switch (this) {
+            case SEQUENTIAL:
+                for (int i = 0; i < n; i++) {
+                    raw[i] = i;
+                }
+                break;
+            case ADVERSARIAL:
+                for (int i = 0; i < n; i++) {
+                    long group = i / COLLISION_GROUP;
+                    long member = i % COLLISION_GROUP;
+                    // high word member, low word group ^ member: hashCode() == group
+                    raw[i] = (member << 32) | ((group ^ member) & 0xFFFFFFFFL);
+                }
+                Arrays.sort(raw);
+                break;
+            default:
+                Random rand = new Random(seed);
+                for (int i = 0; i < n; i++) {
+                    raw[i] = rand.nextLong();
+                }
+                // drop the (astronomically rare) duplicates to keep size() == n
+                long[] sorted = raw.clone();
+                Arrays.sort(sorted);
+                for (int i = 1; i < n; i++) {
+                    if (sorted[i] == sorted[i - 1]) {
+                        throw new IllegalStateException("duplicate random key, change the seed");
+                    }
+                }
+        }
+        Long[] keys = new Long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = raw[i];
+        }
+        return keys;
+    }
+
+    /**
+     * @return count indexes into the key array, following this access pattern
+     */
+    public int[] accessOrder(int n, int count, long seed) {
+        int[] order = new int[count];
+        switch (this) {
+            case ZIPFIAN:
+                ZipfianGenerator zipf = new ZipfianGenerator(n, seed);
+                for (int i = 0; i < count; i++) {
+                    order[i] = zipf.next();
+                }
+                break;
+            case SEQUENTIAL:
+            case ADVERSARIAL:
+                for (int i = 0; i < count; i++) {
+                    order[i] = i % n;
+                }
+                break;
+            default:
+                Random rand = new Random(seed);
+                for (int i = 0; i < count; i++) {
+                    order[i] = rand.nextInt(n);
+                }
+        }
+        return order;
+    }
+}
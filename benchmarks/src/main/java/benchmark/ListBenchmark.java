@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import list.ArrayList;
+import list.GapBufferList;
+import list.LinkedList;
+import list.List;
+
+/**
+ * editor-style workload: inserts and removes at a cursor that moves a few
+ * positions between edits, against indexed reads at random positions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class ListBenchmark {
+    static final int MAX_STEP = 8; // the cursor moves at most this far between edits
+
+    @Param({ "ARRAY_LIST", "LINKED_LIST", "GAP_BUFFER" })
+    public String impl;
+
+    @Param({ "10000", "1000000" })
+    public int size;
+
+    private List<Long> list;
+    private int[] steps;
+    private int[] indexes;
+    private int cursor;
+    private int position;
+    private boolean insert;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (impl) {
+            case "ARRAY_LIST":
+                list = new ArrayList<>();
+                break;
+            case "LINKED_LIST":
+                list = new LinkedList<>();
+                break;
+            default:
+                list = new GapBufferList<>();
+        }
+        for (int i = 0; i < size; i++) {
+            list.add(i, (long) i);
+        }
+        Random rand = new Random(MapBenchmark.SEED);
+        steps = new int[MapBenchmark.ACCESS_COUNT];
+        indexes = new int[MapBenchmark.ACCESS_COUNT];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = rand.nextInt(2 * MAX_STEP + 1) - MAX_STEP;
+            indexes[i] = rand.nextInt(size);
+        }
+        position = size / 2;
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (cursor + 1) & (MapBenchmark.ACCESS_COUNT - 1);
+        return i;
+    }
+
+    @Benchmark
+    public Long cursorEdit() {
+        // alternate insert and remove, so the size stays put
+        position = Math.max(0, Math.min(size - 1, position + steps[next()]));
+        insert = !insert;
+        if (insert) {
+            list.add(position, (long) position);
+            return null;
+        }
+        return list.remove(position);
+    }
+
+    @Benchmark
+    public Long get() {
+        return list.get(indexes[next()]);
+    }
+}
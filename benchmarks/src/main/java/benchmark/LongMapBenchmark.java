@@ -0,0 +1,92 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import map.LinearProbeHashMap;
+import map.LongObjectHashMap;
+
+/**
+ * long keyed lookups and inserts, boxed LinearProbeHashMap versus the primitive
+ * LongObjectHashMap; compare gc.alloc.rate.norm for the per-entry overhead
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class LongMapBenchmark {
+
+    @Param({ "1000", "100000", "10000000" })
+    public int size;
+
+    private long[] keys;
+    private int[] order;
+    private int cursor;
+    private LinearProbeHashMap<Long, Object> boxed;
+    private LongObjectHashMap<Object> primitive;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random rand = new Random(MapBenchmark.SEED);
+        keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = rand.nextLong();
+        }
+        order = KeyDistribution.UNIFORM.accessOrder(size, MapBenchmark.ACCESS_COUNT, MapBenchmark.SEED + 1);
+        boxed = new LinearProbeHashMap<>();
+        primitive = new LongObjectHashMap<>();
+        for (long key : keys) {
+            boxed.put(key, Boolean.TRUE);
+            primitive.put(key, Boolean.TRUE);
+        }
+    }
+
+    private long nextKey() {
+        long key = keys[order[cursor]];
+        cursor = (cursor + 1) & (MapBenchmark.ACCESS_COUNT - 1);
+        return key;
+    }
+
+    @Benchmark
+    public Object boxedGet() {
+        return boxed.get(nextKey());
+    }
+
+    @Benchmark
+    public Object primitiveGet() {
+        return primitive.get(nextKey());
+    }
+
+    @Benchmark
+    public int boxedBuild() {
+        LinearProbeHashMap<Long, Object> map = new LinearProbeHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(nextKey(), Boolean.TRUE);
+        }
+        return map.size();
+    }
+
+    @Benchmark
+    public int primitiveBuild() {
+        LongObjectHashMap<Object> map = new LongObjectHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(nextKey(), Boolean.TRUE);
+        }
+        return map.size();
+    }
+}
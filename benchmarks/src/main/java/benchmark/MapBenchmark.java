@@ -0,0 +1,89 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * point operations (get, put, remove) against every map implementation
+ *
+ * Throughput gives ops/us, SampleTime gives the latency distribution (p99 is
+ * reported as p0.99), BenchmarkRunner adds allocation rate via -prof gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class MapBenchmark {
+    static final int ACCESS_COUNT = 1 << 20; // must be a power of 2
+    static final long SEED = 42;
+
+    @Param({ "CHAIN_HASH_MAP", "LINEAR_PROBE_HASH_MAP", "ROBIN_HOOD_HASH_MAP",
+            "SKIP_LIST", "AVL_TREE", "RED_BLACK_TREE", "CACHED_RED_BLACK_TREE", "TOP_DOWN_RED_BLACK_TREE",
+            "SPLAY_TREE", "CONCURRENT_SPLAY_TREE", "B_TREE", "B_TREE_LINEAR_SEARCH" })
+    public Implementation impl;
+
+    @Param({ "UNIFORM", "ZIPFIAN", "SEQUENTIAL", "ADVERSARIAL" })
+    public KeyDistribution distribution;
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    public int size;
+
+    private Implementation.Target target;
+    private Long[] keys;
+    private int[] order;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = distribution.keys(size, SEED);
+        order = distribution.accessOrder(size, ACCESS_COUNT, SEED + 1);
+        target = impl.create(size);
+        for (Long key : keys) {
+            target.put(key, key);
+        }
+        if (target.size() != size) {
+            throw new IllegalStateException(impl + " holds " + target.size() + " entries, expected " + size);
+        }
+    }
+
+    private Long nextKey() {
+        Long key = keys[order[cursor]];
+        cursor = (cursor + 1) & (ACCESS_COUNT - 1);
+        return key;
+    }
+
+    @Benchmark
+    public Long get() {
+        return target.get(nextKey());
+    }
+
+    @Benchmark
+    public Long put() {
+        // overwrite an existing key
+        Long key = nextKey();
+        return target.put(key, key);
+    }
+
+    @Benchmark
+    public Long removeAndPut() {
+        // remove followed by re-insert keeps the map size, and its shape, stable
+        Long key = nextKey();
+        Long value = target.remove(key);
+        target.put(key, value);
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * subMap scans of rangeLength consecutive entries against the sorted maps
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class RangeBenchmark {
+
+    @Param({ "SKIP_LIST", "AVL_TREE", "RED_BLACK_TREE", "TOP_DOWN_RED_BLACK_TREE", "SPLAY_TREE",
+            "CONCURRENT_SPLAY_TREE", "B_TREE", "B_TREE_LINEAR_SEARCH" })
+    public Implementation impl;
+
+    @Param({ "UNIFORM", "ZIPFIAN", "SEQUENTIAL", "ADVERSARIAL" })
+    public KeyDistribution distribution;
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "100" })
+    public int rangeLength;
+
+    private Implementation.Target target;
+    private Long[] sortedKeys;
+    private int[] order;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (!impl.isSorted()) {
+            throw new IllegalArgumentException(impl + " does not support range queries");
+        }
+        Long[] keys = distribution.keys(size, MapBenchmark.SEED);
+        target = impl.create(size);
+        for (Long key : keys) {
+            target.put(key, key);
+        }
+        sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+        // start positions, leaving room for a full range after each of them
+        order = distribution.accessOrder(Math.max(1, size - rangeLength), MapBenchmark.ACCESS_COUNT,
+                MapBenchmark.SEED + 1);
+    }
+
+    @Benchmark
+    public int range() {
+        int from = order[cursor];
+        cursor = (cursor + 1) & (MapBenchmark.ACCESS_COUNT - 1);
+        int to = Math.min(from + rangeLength, size - 1);
+        return target.range(sortedKeys[from], sortedKeys[to]);
+    }
+}
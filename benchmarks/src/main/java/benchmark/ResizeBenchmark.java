@@ -0,0 +1,84 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import map.AbstractHashMap;
+import map.ChainHashMap;
+import map.LinearProbeHashMap;
+import map.RobinHoodHashMap;
+
+/**
+ * latency distribution of put into a growing hash map, with the one-shot resize
+ * versus incremental rehashing; compare the p0.99 and p1.0 percentiles
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class ResizeBenchmark {
+
+    @Param({ "CHAIN_HASH_MAP", "LINEAR_PROBE_HASH_MAP", "ROBIN_HOOD_HASH_MAP" })
+    public Implementation impl;
+
+    @Param({ "false", "true" })
+    public boolean incremental;
+
+    @Param({ "1000000" })
+    public int maxSize; // start over with an empty map once reached
+
+    private AbstractHashMap<Long, Long> map;
+    private Long[] keys;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUpKeys() {
+        keys = KeyDistribution.UNIFORM.keys(maxSize, MapBenchmark.SEED);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        reset();
+    }
+
+    private void reset() {
+        switch (impl) {
+            case CHAIN_HASH_MAP:
+                map = new ChainHashMap<>();
+                break;
+            case LINEAR_PROBE_HASH_MAP:
+                map = new LinearProbeHashMap<>();
+                break;
+            case ROBIN_HOOD_HASH_MAP:
+                map = new RobinHoodHashMap<>();
+                break;
+            default:
+                throw new IllegalArgumentException(impl + " is not a hash map");
+        }
+        map.setIncrementalRehash(incremental);
+        cursor = 0;
+    }
+
+    @Benchmark
+    public Long put() {
+        if (cursor == maxSize) {
+            reset();
+        }
+        Long key = keys[cursor++];
+        return map.put(key, key);
+    }
+}
@@ -0,0 +1,101 @@
+package benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import map.ConcurrentSkipList;
+import map.SkipList;
+
+/**
+ * writer scaling of an ordered index from 1 to all cores: SkipList behind one
+ * global lock versus the lock-free ConcurrentSkipList; every operation is a put
+ * or a remove of a random key, so the size stays around half the key space
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class SkipListScalingBenchmark {
+
+    @Param({ "GLOBAL_LOCK", "LOCK_FREE" })
+    public String variant;
+
+    @Param({ "1000000" })
+    public int keySpace;
+
+    private map.SortedMap<Long, Long> map;
+    private SkipList<Long, Long> locked;
+    private Long[] keys;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        keys = KeyDistribution.UNIFORM.keys(keySpace, MapBenchmark.SEED);
+        if (variant.equals("GLOBAL_LOCK")) {
+            locked = new SkipList<>(24);
+            map = locked;
+        } else {
+            locked = null;
+            map = new ConcurrentSkipList<>();
+        }
+        for (int i = 0; i < keySpace; i += 2) {
+            map.put(keys[i], keys[i]);
+        }
+    }
+
+    private Long write() {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        Long key = keys[rand.nextInt(keySpace)];
+        if (locked != null) {
+            synchronized (locked) {
+                return (rand.nextBoolean() ? locked.put(key, key) : locked.remove(key));
+            }
+        }
+        return (rand.nextBoolean() ? map.put(key, key) : map.remove(key));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Long threads1() {
+        return write();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Long threads2() {
+        return write();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Long threads4() {
+        return write();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Long threads8() {
+        return write();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Long threadsMax() {
+        return write();
+    }
+}
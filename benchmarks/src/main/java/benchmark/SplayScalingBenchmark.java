@@ -0,0 +1,107 @@
+package benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bst.ConcurrentSplayTree;
+import bst.SplayTree;
+
+/**
+ * reader scaling of a self-adjusting tree from 1 to all cores: SplayTree,
+ * which restructures on every get, behind one global lock versus the
+ * semi-splaying ConcurrentSplayTree with its optimistic read path; every
+ * operation is a get of an existing key
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class SplayScalingBenchmark {
+
+    @Param({ "GLOBAL_LOCK", "SEMI_SPLAY" })
+    public String variant;
+
+    @Param({ "UNIFORM", "ZIPFIAN" })
+    public KeyDistribution distribution;
+
+    @Param({ "1000000" })
+    public int size;
+
+    private bst.SortedMap<Long, Long> map;
+    private SplayTree<Long, Long> locked;
+    private Long[] keys;
+    private int[] order;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = distribution.keys(size, MapBenchmark.SEED);
+        order = distribution.accessOrder(size, MapBenchmark.ACCESS_COUNT, MapBenchmark.SEED + 1);
+        if (variant.equals("GLOBAL_LOCK")) {
+            locked = new SplayTree<>();
+            map = locked;
+        } else {
+            locked = null;
+            map = new ConcurrentSplayTree<>();
+        }
+        for (Long key : keys) {
+            map.put(key, key);
+        }
+    }
+
+    private Long read() {
+        // every thread samples the shared access order at its own positions
+        Long key = keys[order[ThreadLocalRandom.current().nextInt(MapBenchmark.ACCESS_COUNT)]];
+        if (locked != null) {
+            synchronized (locked) {
+                return locked.get(key);
+            }
+        }
+        return map.get(key);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Long threads1() {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Long threads2() {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Long threads4() {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Long threads8() {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Long threadsMax() {
+        return read();
+    }
+}
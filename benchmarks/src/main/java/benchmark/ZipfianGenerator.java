@@ -0,0 +1,54 @@
+package benchmark;
+
+import java.util.Random;
+
+/**
+ * zipfian distributed ranks in [0, n), rank 0 is the most popular one
+ *
+ * Gray et al., "Quickly Generating Billion-Record Synthetic Databases", the
+ * same generator YCSB uses. zeta(n) is computed once, each sample is O(1).
+ */
+public class ZipfianGenerator {
+    public static final double DEFAULT_THETA = 0.99;
+
+    private final int n;
+    private final double theta;
+    private final double alpha, eta, zeta2;
+    private final double zetaN;
+    private final Random rand;
+
+    public ZipfianGenerator(int n, long seed) {
+        this(n, DEFAULT_THETA, seed);
+    }
+
+    public ZipfianGenerator(int n, double theta, long seed) {
+        this.n = n;
+        this.theta = theta;
+        this.rand = new Random(seed);
+        this.zeta2 = zeta(2, theta);
+        this.zetaN = zeta(n, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetaN);
+    }
+
+    private static double zeta(int n, double theta) {
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+
+    public int next() {
+        double u = rand.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return 1;
+        }
+        int rank = (int) (n * Math.pow(eta * u - eta + 1, alpha));
+        return (rank >= n ? n - 1 : rank);
+    }
+}
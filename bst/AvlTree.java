@@ -1,23 +1,96 @@
 package bst;
 
-public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import metrics.Instrumented;
+import metrics.MetricsRecorder;
+import metrics.StructureMetrics;
+import parallel.ParallelBulk;
+
+public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V>, Instrumented {
     private Node<K, V> root;
     private int size;
+    private int modCount; // structural changes, for fail-fast iterators
+    private MetricsRecorder metrics; // null unless enabled
 
     public AvlTree() {
     }
 
+    /**
+     * build a perfectly balanced tree from entries sorted by strictly ascending
+     * key in O(n), comparing each key only with its predecessor
+     *
+     * @throws IllegalArgumentException if the keys are out of order or the
+     *                                  iterator holds fewer than size entries
+     */
+    public static <K extends Comparable<K>, V> AvlTree<K, V> fromSorted(Iterator<? extends TreeMap.Entry<K, V>> it,
+            int size) {
+        SortedInput.checkSize(size);
+        AvlTree<K, V> tree = new AvlTree<>();
+        tree.root = tree.buildFromSorted(0, size - 1, new SortedInput<>(it));
+        tree.size = size;
+        return tree;
+    }
+
+    /**
+     * build a perfectly balanced tree from keys[i] -> values[i], keys sorted in
+     * strictly ascending order
+     */
+    public static <K extends Comparable<K>, V> AvlTree<K, V> fromSorted(K[] keys, V[] values) {
+        AvlTree<K, V> tree = new AvlTree<>();
+        tree.root = tree.buildFromSorted(0, keys.length - 1, new SortedInput<>(keys, values));
+        tree.size = keys.length;
+        return tree;
+    }
+
+    private Node<K, V> buildFromSorted(int lo, int hi, SortedInput<K, V> input) {
+        /**
+         * build the subtree of the entries lo..hi in order: left subtree, middle
+         * node, right subtree
+         */
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node<K, V> left = buildFromSorted(lo, mid - 1, input);
+        input.next();
+        Node<K, V> node = new Node<>(input.key, input.value);
+        Node<K, V> right = buildFromSorted(mid + 1, hi, input);
+        node.left = left;
+        node.right = right;
+        if (left != null) {
+            left.parent = node;
+        }
+        if (right != null) {
+            right.parent = node;
+        }
+        node.height = max(height(left), height(right)) + 1;
+        node.size = sizeOf(left) + sizeOf(right) + 1;
+        return node;
+    }
+
     private static class Node<K, V> implements TreeMap.Entry<K, V> {
         K key;
         V value;
         Node<K, V> parent;
         Node<K, V> left, right;
         int height;
+        int size; // nodes in the subtree rooted here
 
         public Node(K key, V value) {
             this.key = key;
             this.value = value;
             this.height = 1;
+            this.size = 1;
         }
 
         @Override
@@ -33,13 +106,21 @@ public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
 
     /** AVL tree operations */
     private Node<K, V> search(Node<K, V> node, K key) {
-        while ((node != null) && (node.key != key)) {
-            if (key.compareTo(node.key) > 0) {
+        int cmps = 0;
+        while (node != null) {
+            cmps++;
+            int cmp = key.compareTo(node.key);
+            if (cmp > 0) {
                 node = node.right;
-            } else {
+            } else if (cmp < 0) {
                 node = node.left;
+            } else {
+                break;
             }
         }
+        if (metrics != null) {
+            metrics.compare(cmps);
+        }
         return node;
     }
 
@@ -73,7 +154,12 @@ public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
         node.parent = y;
         // update height
         node.height = max(height(node.left), height(node.right)) + 1;
-        y.height = max(height(node.left), height(node.right)) + 1;
+        y.height = max(height(y.left), height(y.right)) + 1;
+        y.size = node.size;
+        node.size = sizeOf(node.left) + sizeOf(node.right) + 1;
+        if (metrics != null) {
+            metrics.rotate();
+        }
     }
 
     private void rotateRight(Node<K, V> node) {
@@ -98,7 +184,12 @@ public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
         node.parent = x;
         // update height
         node.height = max(height(node.left), height(node.right)) + 1;
-        x.height = max(height(node.left), height(node.right)) + 1;
+        x.height = max(height(x.left), height(x.right)) + 1;
+        x.size = node.size;
+        node.size = sizeOf(node.left) + sizeOf(node.right) + 1;
+        if (metrics != null) {
+            metrics.rotate();
+        }
     }
 
     private void rebalance(Node<K, V> node) {
@@ -108,7 +199,7 @@ public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
         int heightDiff = height(node.left) - height(node.right);
         while (true) {
             if (heightDiff == 2) {
-                if (height(node.left.left) > height(node.left.right)) {
+                if (height(node.left.left) >= height(node.left.right)) {
                     // single right rotate
                     rotateRight(node);
                 } else {
@@ -117,7 +208,7 @@ public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
                     rotateRight(node);
                 }
             } else if (heightDiff == -2) {
-                if (height(node.right.right) > height(node.right.left)) {
+                if (height(node.right.right) >= height(node.right.left)) {
                     // single left rotate
                     rotateLeft(node);
                 } else {
@@ -126,8 +217,9 @@ public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
                     rotateLeft(node);
                 }
             }
-            // update node height
+            // update node height and size
             node.height = max(height(node.left), height(node.right)) + 1;
+            node.size = sizeOf(node.left) + sizeOf(node.right) + 1;
             node = node.parent; // upwards
             if (node == null) {
                 break;
@@ -140,25 +232,34 @@ public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
         // empty tree
         if (root == null) {
             root = new Node<>(key, value);
+            size++;
+            modCount++;
             return value;
         }
         // search, p points to the new node's parent
         Node<K, V> p = null, t = root;
-        int cmp = 0;
+        int cmp = 0, cmps = 0;
         while (t != null) {
             p = t;
+            cmps++;
             cmp = key.compareTo(t.key);
             if (cmp < 0) {
                 t = t.left;
             } else if (cmp > 0) {
                 t = t.right;
             } else {
+                if (metrics != null) {
+                    metrics.compare(cmps);
+                }
                 V oldValue = t.value;
                 t.key = key;
                 t.value = value;
                 return oldValue;
             }
         }
+        if (metrics != null) {
+            metrics.compare(cmps);
+        }
         if (cmp < 0) {
             p.left = new Node<>(key, value);
             p.left.parent = p;
@@ -169,6 +270,7 @@ public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
             p.height = max(height(p.left), height(p.right)) + 1;
         }
         size++;
+        modCount++;
         rebalance(p);
         return value;
     }
@@ -207,10 +309,10 @@ public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
         Node<K, V> fixPoint; // start point to rebalance
         if (deleteNode.left == null) {
             transplant(deleteNode, deleteNode.right);
-            fixPoint = deleteNode.right;
+            fixPoint = deleteNode.parent;
         } else if (deleteNode.right == null) {
             transplant(deleteNode, deleteNode.left);
-            fixPoint = deleteNode.left;
+            fixPoint = deleteNode.parent;
         } else {
             Node<K, V> succ = minimum(deleteNode.right);
             fixPoint = succ;
@@ -229,15 +331,323 @@ public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
             transplant(deleteNode, succ);
         }
         size--;
-        rebalance(fixPoint);
+        modCount++;
+        if (fixPoint != null) {
+            rebalance(fixPoint);
+        }
         return oldValue;
     }
 
+    /**
+     * join-based operations: join, split, union, intersection and difference
+     *
+     * everything is built on join(left, node, right), which links two trees
+     * and a middle node whose key lies between them in O(|height difference|)
+     * by descending the spine of the taller tree. The set operations split one
+     * tree at the root key of the other and recurse on both halves in
+     * O(m log(n / m + 1)) for trees of sizes m <= n, forking the halves into
+     * the common ForkJoinPool while both trees are higher than PARALLEL_HEIGHT.
+     * They move the nodes of the argument tree, which is left empty.
+     */
+    private static final int PARALLEL_HEIGHT = 12;
+
+    /**
+     * move all entries of other, whose keys must be greater than every key of
+     * this tree, to this tree in O(log n); other is left empty
+     *
+     * @throws IllegalArgumentException if the key ranges overlap
+     */
+    public void join(AvlTree<K, V> other) {
+        if (other == this) {
+            throw new IllegalArgumentException("cannot join a tree with itself");
+        }
+        if (other.root == null) {
+            return;
+        }
+        if ((root != null) && (maximum(root).key.compareTo(minimum(other.root).key) >= 0)) {
+            throw new IllegalArgumentException("key ranges overlap");
+        }
+        root = new joiner().join2(root, other.root);
+        root.parent = null;
+        size += other.size;
+        modCount++;
+        other.clearAll();
+    }
+
+    /**
+     * keep the entries with key strictly less than key in this tree, and move
+     * the others to a new tree
+     *
+     * the split is O(log n), the sizes of both parts are read off their roots
+     *
+     * @return a tree of the entries with key greater than or equal to key
+     */
+    public AvlTree<K, V> split(K key) {
+        joiner j = new joiner();
+        j.split(root, key);
+        AvlTree<K, V> upper = new AvlTree<>();
+        upper.root = j.join(null, j.found, j.right); // found is the least key of the upper part
+        root = j.left;
+        if (root != null) {
+            root.parent = null;
+        }
+        if (upper.root != null) {
+            upper.root.parent = null;
+        }
+        upper.size = sizeOf(upper.root);
+        size -= upper.size;
+        modCount++;
+        return upper;
+    }
+
+    /**
+     * add the entries of other to this tree, other's value winning for keys in
+     * both; other is left empty
+     */
+    public void union(AvlTree<K, V> other) {
+        setOperation(other, SetOperation.UNION);
+    }
+
+    /**
+     * keep only the entries whose key is also in other; other is left empty
+     */
+    public void intersection(AvlTree<K, V> other) {
+        setOperation(other, SetOperation.INTERSECTION);
+    }
+
+    /**
+     * remove the entries whose key is in other; other is left empty
+     */
+    public void difference(AvlTree<K, V> other) {
+        setOperation(other, SetOperation.DIFFERENCE);
+    }
+
+    private enum SetOperation {
+        UNION, INTERSECTION, DIFFERENCE
+    }
+
+    private void setOperation(AvlTree<K, V> other, SetOperation op) {
+        if (other == this) {
+            throw new IllegalArgumentException("cannot combine a tree with itself");
+        }
+        setTask task = new setTask(op, root, other.root);
+        if ((height(root) >= PARALLEL_HEIGHT) && (height(other.root) >= PARALLEL_HEIGHT)) {
+            root = ForkJoinPool.commonPool().invoke(task);
+        } else {
+            root = task.compute();
+        }
+        if (root != null) {
+            root.parent = null;
+        }
+        switch (op) {
+        case UNION:
+            size += other.size - task.matched;
+            break;
+        case INTERSECTION:
+            size = task.matched;
+            break;
+        default:
+            size -= task.matched;
+        }
+        modCount++;
+        other.clearAll();
+    }
+
+    private void clearAll() {
+        root = null;
+        size = 0;
+        modCount++;
+    }
+
+    private final class setTask extends RecursiveTask<Node<K, V>> {
+        /**
+         * combine t1 and t2 by splitting t2 at the root key of t1; matched counts
+         * the keys found in both
+         */
+        private static final long serialVersionUID = 1L;
+
+        private final SetOperation op;
+        private final Node<K, V> t1, t2;
+        private int matched;
+
+        setTask(SetOperation op, Node<K, V> t1, Node<K, V> t2) {
+            this.op = op;
+            this.t1 = t1;
+            this.t2 = t2;
+        }
+
+        @Override
+        protected Node<K, V> compute() {
+            if (t1 == null) {
+                return (op == SetOperation.UNION ? t2 : null);
+            }
+            if (t2 == null) {
+                return (op == SetOperation.INTERSECTION ? null : t1);
+            }
+            boolean parallel = (height(t1) >= PARALLEL_HEIGHT) && (height(t2) >= PARALLEL_HEIGHT);
+            joiner j = new joiner();
+            j.split(t2, t1.key);
+            setTask left = new setTask(op, detach(t1.left), j.left);
+            setTask right = new setTask(op, detach(t1.right), j.right);
+            Node<K, V> l, r;
+            if (parallel) {
+                left.fork();
+                r = right.compute();
+                l = left.join();
+            } else {
+                l = left.compute();
+                r = right.compute();
+            }
+            matched = left.matched + right.matched + (j.found != null ? 1 : 0);
+            if ((op == SetOperation.UNION) && (j.found != null)) {
+                t1.value = j.found.value;
+            }
+            boolean keep = (op == SetOperation.UNION) || ((j.found != null) == (op == SetOperation.INTERSECTION));
+            return (keep ? j.join(l, t1, r) : j.join2(l, r));
+        }
+    }
+
+    private Node<K, V> detach(Node<K, V> node) {
+        if (node != null) {
+            node.parent = null;
+        }
+        return node;
+    }
+
+    private final class joiner {
+        /**
+         * join and split on detached subtrees, without touching root, size or
+         * modCount, so tasks may run them on disjoint subtrees in parallel; split
+         * leaves its three parts in left, found and right
+         */
+        private Node<K, V> left, found, right;
+
+        private Node<K, V> link(Node<K, V> l, Node<K, V> node, Node<K, V> r) {
+            node.left = l;
+            node.right = r;
+            node.parent = null;
+            if (l != null) {
+                l.parent = node;
+            }
+            if (r != null) {
+                r.parent = node;
+            }
+            node.height = max(height(l), height(r)) + 1;
+            node.size = sizeOf(l) + sizeOf(r) + 1;
+            return node;
+        }
+
+        private Node<K, V> rotateLeft(Node<K, V> node) {
+            Node<K, V> y = node.right;
+            return link(link(node.left, node, y.left), y, y.right);
+        }
+
+        private Node<K, V> rotateRight(Node<K, V> node) {
+            Node<K, V> x = node.left;
+            return link(x.left, x, link(x.right, node, node.right));
+        }
+
+        Node<K, V> join(Node<K, V> l, Node<K, V> node, Node<K, V> r) {
+            /**
+             * @return the tree of l, node and r, every key of l less than node's and
+             *         every key of r greater; node may be null when l or r is
+             */
+            if (node == null) {
+                return join2(l, r);
+            }
+            if (height(l) > height(r) + 1) {
+                return joinRight(l, node, r);
+            }
+            if (height(r) > height(l) + 1) {
+                return joinLeft(l, node, r);
+            }
+            return link(l, node, r);
+        }
+
+        private Node<K, V> joinRight(Node<K, V> l, Node<K, V> node, Node<K, V> r) {
+            // descend the right spine of l to a subtree at most one higher than r
+            Node<K, V> c = l.right;
+            if (height(c) <= height(r) + 1) {
+                Node<K, V> t = link(c, node, r);
+                if (height(t) <= height(l.left) + 1) {
+                    return link(l.left, l, t);
+                }
+                return rotateLeft(link(l.left, l, rotateRight(t)));
+            }
+            Node<K, V> t = joinRight(c, node, r);
+            Node<K, V> joined = link(l.left, l, t);
+            return (height(t) <= height(l.left) + 1 ? joined : rotateLeft(joined));
+        }
+
+        private Node<K, V> joinLeft(Node<K, V> l, Node<K, V> node, Node<K, V> r) {
+            // mirror image of joinRight
+            Node<K, V> c = r.left;
+            if (height(c) <= height(l) + 1) {
+                Node<K, V> t = link(l, node, c);
+                if (height(t) <= height(r.right) + 1) {
+                    return link(t, r, r.right);
+                }
+                return rotateRight(link(rotateLeft(t), r, r.right));
+            }
+            Node<K, V> t = joinLeft(l, node, c);
+            Node<K, V> joined = link(t, r, r.right);
+            return (height(t) <= height(r.right) + 1 ? joined : rotateRight(joined));
+        }
+
+        Node<K, V> join2(Node<K, V> l, Node<K, V> r) {
+            /**
+             * @return the tree of l and r, every key of l less than every key of r
+             */
+            if (l == null) {
+                return r;
+            }
+            Node<K, V> rest = removeLast(l);
+            return join(rest, found, r);
+        }
+
+        private Node<K, V> removeLast(Node<K, V> t) {
+            // the maximum goes to found
+            if (t.right == null) {
+                found = t;
+                return detach(t.left);
+            }
+            Node<K, V> rest = removeLast(t.right);
+            return join(t.left, t, rest);
+        }
+
+        void split(Node<K, V> t, K key) {
+            if (t == null) {
+                left = found = right = null;
+                return;
+            }
+            Node<K, V> l = t.left, r = t.right;
+            int cmp = key.compareTo(t.key);
+            if (cmp == 0) {
+                left = detach(l);
+                found = t;
+                right = detach(r);
+                t.left = t.right = null;
+                t.height = 1;
+                t.size = 1;
+            } else if (cmp < 0) {
+                split(l, key);
+                right = join(right, t, r);
+            } else {
+                split(r, key);
+                left = join(l, t, left);
+            }
+        }
+    }
+
     /** utility function */
     private int height(Node<K, V> node) {
         return (node == null ? 0 : node.height);
     }
 
+    private int sizeOf(Node<K, V> node) {
+        return (node == null ? 0 : node.size);
+    }
+
     private int max(int x, int y) {
         return (x >= y ? x : y);
     }
@@ -246,68 +656,362 @@ public class AvlTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
         return size;
     }
 
+    @Override
+    public void setMetricsEnabled(boolean enabled) {
+        this.metrics = (enabled ? new MetricsRecorder() : null);
+    }
+
+    @Override
+    public boolean isMetricsEnabled() {
+        return (metrics != null);
+    }
+
+    @Override
+    public StructureMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public boolean containsKey(K key) {
         return (search(root, key) == null ? false : true);
     }
 
+    private Node<K, V> maximum(Node<K, V> node) {
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node;
+    }
+
+    private Node<K, V> successor(Node<K, V> node) {
+        /**
+         * @return the node with the least key greater than node's, or null
+         */
+        if (node.right != null) {
+            return minimum(node.right);
+        }
+        Node<K, V> p = node.parent;
+        while ((p != null) && (node == p.right)) {
+            node = p;
+            p = p.parent;
+        }
+        return p;
+    }
+
+    private Node<K, V> ceilingNode(K key, boolean inclusive) {
+        /**
+         * @return the node with the least key greater than (or equal to, if
+         *         inclusive) key, or null
+         */
+        Node<K, V> node = root, candidate = null;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if ((cmp < 0) || (inclusive && cmp == 0)) {
+                candidate = node;
+                if (cmp == 0) {
+                    break;
+                }
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return candidate;
+    }
+
+    private Node<K, V> floorNode(K key, boolean inclusive) {
+        /**
+         * @return the node with the greatest key less than (or equal to, if
+         *         inclusive) key, or null
+         */
+        Node<K, V> node = root, candidate = null;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if ((cmp > 0) || (inclusive && cmp == 0)) {
+                candidate = node;
+                if (cmp == 0) {
+                    break;
+                }
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return candidate;
+    }
+
     @Override
     public Iterable<K> keySet() {
-        // TODO Auto-generated method stub
-        return null;
+        return () -> new keyIterator();
     }
 
     @Override
     public Iterable<V> valueSet() {
-        // TODO Auto-generated method stub
-        return null;
+        return () -> new valueIterator();
     }
 
     @Override
     public Iterable<Entry<K, V>> entrySet() {
-        // TODO Auto-generated method stub
-        return null;
+        return () -> new entryIterator((root == null ? null : minimum(root)), null);
     }
 
     @Override
     public Entry<K, V> firstEntry() {
-        // TODO Auto-generated method stub
-        return null;
+        return (root == null ? null : minimum(root));
     }
 
     @Override
     public Entry<K, V> lastEntry() {
-        // TODO Auto-generated method stub
-        return null;
+        return (root == null ? null : maximum(root));
     }
 
     @Override
     public Entry<K, V> ceilingEntry(K key) {
-        // TODO Auto-generated method stub
-        return null;
+        return ceilingNode(key, true);
     }
 
     @Override
     public Entry<K, V> floorEntry(K key) {
-        // TODO Auto-generated method stub
-        return null;
+        return floorNode(key, true);
     }
 
     @Override
     public Entry<K, V> lowerEntry(K key) {
-        // TODO Auto-generated method stub
-        return null;
+        return floorNode(key, false);
     }
 
     @Override
     public Entry<K, V> higherEntry(K key) {
-        // TODO Auto-generated method stub
-        return null;
+        return ceilingNode(key, false);
     }
 
     @Override
     public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) {
-        // TODO Auto-generated method stub
-        return null;
+        /**
+         * @return a view of all entries with key greater than or equal to fromKey, but
+         *         strictly less than toKey
+         */
+        // check invalid arguments
+        if (fromKey.compareTo(toKey) >= 0) {
+            return null;
+        }
+        return () -> new entryIterator(ceilingNode(fromKey, true), toKey);
+    }
+
+    /**
+     * @return a spliterator over the entries in key order, splitting by subtree
+     */
+    public Spliterator<Entry<K, V>> spliterator() {
+        return new entrySpliterator((root == null ? null : minimum(root)), null, size, true, modCount);
+    }
+
+    /**
+     * @return a spliterator over the entries with key greater than or equal to
+     *         fromKey, but strictly less than toKey
+     */
+    public Spliterator<Entry<K, V>> spliterator(K fromKey, K toKey) {
+        Node<K, V> first = (fromKey.compareTo(toKey) >= 0 ? null : ceilingNode(fromKey, true));
+        return new entrySpliterator(first, toKey, size, false, modCount);
+    }
+
+    /**
+     * parallel bulk operations, see ParallelBulk for parallelismThreshold; the
+     * tree must not be modified while they run
+     */
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        ParallelBulk.forEach(spliterator(), parallelismThreshold, e -> action.accept(e.getKey(), e.getValue()));
+    }
+
+    public void forEach(long parallelismThreshold, K fromKey, K toKey, BiConsumer<? super K, ? super V> action) {
+        ParallelBulk.forEach(spliterator(fromKey, toKey), parallelismThreshold,
+                e -> action.accept(e.getKey(), e.getValue()));
+    }
+
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        return ParallelBulk.reduce(spliterator(), parallelismThreshold,
+                e -> transformer.apply(e.getKey(), e.getValue()), reducer);
+    }
+
+    public <U> U reduce(long parallelismThreshold, K fromKey, K toKey,
+            BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        return ParallelBulk.reduce(spliterator(fromKey, toKey), parallelismThreshold,
+                e -> transformer.apply(e.getKey(), e.getValue()), reducer);
+    }
+
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        return ParallelBulk.search(spliterator(), parallelismThreshold,
+                e -> searchFunction.apply(e.getKey(), e.getValue()));
+    }
+
+    public <U> U search(long parallelismThreshold, K fromKey, K toKey,
+            BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        return ParallelBulk.search(spliterator(fromKey, toKey), parallelismThreshold,
+                e -> searchFunction.apply(e.getKey(), e.getValue()));
+    }
+
+    private final class entrySpliterator implements Spliterator<Entry<K, V>> {
+        /**
+         * entries from next up to toKey (exclusive, null for no bound). trySplit
+         * cuts at the highest node strictly inside the range, the root of the
+         * smallest subtree spanning it, so the halves follow the tree's own
+         * balance; the size is exact only before the first split
+         */
+        private Node<K, V> next; // null when exhausted
+        private K toKey;
+        private long est;
+        private boolean sized;
+        private final int expectedModCount;
+
+        entrySpliterator(Node<K, V> first, K toKey, long est, boolean sized, int expectedModCount) {
+            this.toKey = toKey;
+            this.next = bounded(first);
+            this.est = est;
+            this.sized = sized;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private Node<K, V> bounded(Node<K, V> node) {
+            if ((node == null) || ((toKey != null) && (node.key.compareTo(toKey) >= 0))) {
+                return null;
+            }
+            return node;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<K, V>> action) {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == null) {
+                return false;
+            }
+            Node<K, V> node = next;
+            next = bounded(successor(node));
+            if (est > 0) {
+                est--;
+            }
+            action.accept(node);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Entry<K, V>> action) {
+            while (tryAdvance(action)) {
+                // advance to toKey
+            }
+        }
+
+        @Override
+        public Spliterator<Entry<K, V>> trySplit() {
+            if (next == null) {
+                return null;
+            }
+            Node<K, V> node = root;
+            while (node != null) {
+                if (node.key.compareTo(next.key) <= 0) {
+                    node = node.right;
+                } else if ((toKey != null) && (node.key.compareTo(toKey) >= 0)) {
+                    node = node.left;
+                } else {
+                    break;
+                }
+            }
+            if (node == null) {
+                return null;
+            }
+            sized = false;
+            est >>>= 1;
+            entrySpliterator prefix = new entrySpliterator(next, node.key, est, false, expectedModCount);
+            next = node;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return est;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | NONNULL | (sized ? SIZED : 0);
+        }
+
+        @Override
+        public Comparator<? super Entry<K, V>> getComparator() {
+            return (a, b) -> a.getKey().compareTo(b.getKey());
+        }
+    }
+
+    private abstract class nodeIterator {
+        /**
+         * in-order cursor following parent pointers, O(1) extra memory, up to
+         * toKey (exclusive, null for no bound)
+         */
+        private Node<K, V> next;
+        private final K toKey;
+        private final int expectedModCount = modCount;
+
+        nodeIterator(Node<K, V> first, K toKey) {
+            this.toKey = toKey;
+            this.next = bounded(first);
+        }
+
+        private Node<K, V> bounded(Node<K, V> node) {
+            if ((node == null) || ((toKey != null) && (node.key.compareTo(toKey) >= 0))) {
+                return null;
+            }
+            return node;
+        }
+
+        public boolean hasNext() {
+            return (next != null);
+        }
+
+        protected Node<K, V> nextNode() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = next;
+            next = bounded(successor(node));
+            return node;
+        }
+    }
+
+    private class entryIterator extends nodeIterator implements Iterator<Entry<K, V>> {
+        entryIterator(Node<K, V> first, K toKey) {
+            super(first, toKey);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            return nextNode();
+        }
+    }
+
+    private class keyIterator extends nodeIterator implements Iterator<K> {
+        keyIterator() {
+            super((root == null ? null : minimum(root)), null);
+        }
+
+        @Override
+        public K next() {
+            return nextNode().key;
+        }
+    }
+
+    private class valueIterator extends nodeIterator implements Iterator<V> {
+        valueIterator() {
+            super((root == null ? null : minimum(root)), null);
+        }
+
+        @Override
+        public V next() {
+            return nextNode().value;
+        }
     }
 }
@@ -0,0 +1,609 @@
+package bst;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class BTreeMap<K extends Comparable<K>, V> implements SortedMap<K, V> {
+    /**
+     * B+ tree: every node keeps its keys in one array, so a lookup touches one
+     * node per level instead of one per comparison, and a tree of fanout 32
+     * holds 10^7 entries in 5 levels.
+     *
+     * entries live in the leaves only, chained left to right for range scans.
+     * An inner node with n keys has n + 1 children, keys[i] is the least key of
+     * children[i + 1]. Every node but the root holds at least maxKeys / 2 keys,
+     * a full node splits in halves, an underflowing node borrows from a sibling
+     * or merges with it.
+     *
+     * entrySet, keySet, valueSet and subMap are live views over the leaf chain,
+     * their iterators fail fast on concurrent modification.
+     */
+
+    private static final int FANOUT = 32;
+
+    public enum SearchMode {
+        LINEAR, // scan the keys of a node in order, fewer branches for small fanouts
+        BINARY
+    }
+
+    private final int maxKeys; // fanout - 1
+    private final int minKeys; // except the root
+    private final SearchMode searchMode;
+    private Node root;
+    private int size;
+    private int modCount; // structural changes, for fail-fast iterators
+    private Node splitNode; // set by a split to the new right sibling ...
+    private K splitKey; // ... and the key it promotes to the parent
+
+    public BTreeMap() {
+        this(FANOUT);
+    }
+
+    public BTreeMap(int fanout) {
+        this(fanout, SearchMode.BINARY);
+    }
+
+    public BTreeMap(int fanout, SearchMode searchMode) {
+        if (fanout < 4) {
+            throw new IllegalArgumentException("Illegal fanout: " + fanout);
+        }
+        this.maxKeys = fanout - 1;
+        this.minKeys = maxKeys / 2;
+        this.searchMode = searchMode;
+        this.root = new Leaf();
+    }
+
+    private abstract class Node {
+        final Object[] keys = new Object[maxKeys + 1]; // one spare slot before a split
+        int n;
+
+        @SuppressWarnings("unchecked")
+        K key(int i) {
+            return (K) keys[i];
+        }
+    }
+
+    private final class Leaf extends Node {
+        final Object[] values = new Object[maxKeys + 1];
+        Leaf next; // right sibling
+
+        @SuppressWarnings("unchecked")
+        V value(int i) {
+            return (V) values[i];
+        }
+    }
+
+    private final class Inner extends Node {
+        @SuppressWarnings("unchecked")
+        final Node[] children = (Node[]) new BTreeMap.Node[maxKeys + 2];
+    }
+
+    private static final class LeafEntry<K, V> implements TreeMap.Entry<K, V> {
+        private final K key;
+        private final V value;
+
+        LeafEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+    }
+
+    /** node operations */
+    private int search(Node node, K key) {
+        /**
+         * @return i if node.keys[i] equals key, or -(i + 1) where i is the index of
+         *         the first key greater than key
+         */
+        if (searchMode == SearchMode.LINEAR) {
+            int i = 0;
+            while (i < node.n) {
+                int cmp = key.compareTo(node.key(i));
+                if (cmp == 0) {
+                    return i;
+                }
+                if (cmp < 0) {
+                    break;
+                }
+                i++;
+            }
+            return -(i + 1);
+        }
+        int lo = 0, hi = node.n - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = key.compareTo(node.key(mid));
+            if (cmp > 0) {
+                lo = mid + 1;
+            } else if (cmp < 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    private int childIndex(Inner node, K key) {
+        int i = search(node, key);
+        return (i >= 0 ? i + 1 : -(i + 1));
+    }
+
+    private Leaf leafFor(K key) {
+        Node node = root;
+        while (node instanceof BTreeMap.Inner) {
+            Inner inner = (Inner) node;
+            node = inner.children[childIndex(inner, key)];
+        }
+        return (Leaf) node;
+    }
+
+    private Leaf firstLeaf() {
+        Node node = root;
+        while (node instanceof BTreeMap.Inner) {
+            node = ((Inner) node).children[0];
+        }
+        return (Leaf) node;
+    }
+
+    private Leaf lastLeaf() {
+        Node node = root;
+        while (node instanceof BTreeMap.Inner) {
+            node = ((Inner) node).children[node.n];
+        }
+        return (Leaf) node;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public V get(K key) {
+        Leaf leaf = leafFor(key);
+        int i = search(leaf, key);
+        return (i >= 0 ? leaf.value(i) : null);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        Leaf leaf = leafFor(key);
+        return (search(leaf, key) >= 0);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V oldValue = insert(root, key, value);
+        if (splitNode != null) {
+            // the root split, grow the tree by one level
+            Inner newRoot = new Inner();
+            newRoot.keys[0] = splitKey;
+            newRoot.children[0] = root;
+            newRoot.children[1] = splitNode;
+            newRoot.n = 1;
+            root = newRoot;
+            splitNode = null;
+        }
+        return oldValue;
+    }
+
+    private V insert(Node node, K key, V value) {
+        /**
+         * insert into the subtree of node, if node overflows it splits and leaves
+         * the new sibling and the promoted key in splitNode and splitKey
+         */
+        if (node instanceof BTreeMap.Leaf) {
+            Leaf leaf = (Leaf) node;
+            int i = search(leaf, key);
+            if (i >= 0) {
+                V oldValue = leaf.value(i);
+                leaf.keys[i] = key;
+                leaf.values[i] = value;
+                return oldValue;
+            }
+            i = -(i + 1);
+            System.arraycopy(leaf.keys, i, leaf.keys, i + 1, leaf.n - i);
+            System.arraycopy(leaf.values, i, leaf.values, i + 1, leaf.n - i);
+            leaf.keys[i] = key;
+            leaf.values[i] = value;
+            leaf.n++;
+            size++;
+            modCount++;
+            if (leaf.n > maxKeys) {
+                splitLeaf(leaf);
+            }
+            return value;
+        }
+        Inner inner = (Inner) node;
+        int c = childIndex(inner, key);
+        V oldValue = insert(inner.children[c], key, value);
+        if (splitNode != null) {
+            // link the new sibling of children[c] right after it
+            System.arraycopy(inner.keys, c, inner.keys, c + 1, inner.n - c);
+            System.arraycopy(inner.children, c + 1, inner.children, c + 2, inner.n - c);
+            inner.keys[c] = splitKey;
+            inner.children[c + 1] = splitNode;
+            inner.n++;
+            splitNode = null;
+            if (inner.n > maxKeys) {
+                splitInner(inner);
+            }
+        }
+        return oldValue;
+    }
+
+    private void splitLeaf(Leaf leaf) {
+        Leaf right = new Leaf();
+        int half = leaf.n / 2;
+        right.n = leaf.n - half;
+        System.arraycopy(leaf.keys, half, right.keys, 0, right.n);
+        System.arraycopy(leaf.values, half, right.values, 0, right.n);
+        clear(leaf.keys, half, leaf.n);
+        clear(leaf.values, half, leaf.n);
+        leaf.n = half;
+        right.next = leaf.next;
+        leaf.next = right;
+        splitNode = right;
+        splitKey = right.key(0);
+    }
+
+    private void splitInner(Inner inner) {
+        /**
+         * keys[mid] moves up, the keys and children right of it move to the new
+         * sibling
+         */
+        Inner right = new Inner();
+        int mid = inner.n / 2;
+        right.n = inner.n - mid - 1;
+        System.arraycopy(inner.keys, mid + 1, right.keys, 0, right.n);
+        System.arraycopy(inner.children, mid + 1, right.children, 0, right.n + 1);
+        splitKey = inner.key(mid);
+        clear(inner.keys, mid, inner.n);
+        clear(inner.children, mid + 1, inner.n + 1);
+        inner.n = mid;
+        splitNode = right;
+    }
+
+    private static void clear(Object[] a, int from, int to) {
+        for (int i = from; i < to; i++) {
+            a[i] = null; // help garbage collection
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        V oldValue = delete(root, key);
+        if ((root instanceof BTreeMap.Inner) && (root.n == 0)) {
+            // the root lost its last key, shrink the tree by one level
+            root = ((Inner) root).children[0];
+        }
+        return oldValue;
+    }
+
+    private V delete(Node node, K key) {
+        /**
+         * delete from the subtree of node, the caller repairs node if it underflows
+         */
+        if (node instanceof BTreeMap.Leaf) {
+            Leaf leaf = (Leaf) node;
+            int i = search(leaf, key);
+            if (i < 0) {
+                return null;
+            }
+            V oldValue = leaf.value(i);
+            System.arraycopy(leaf.keys, i + 1, leaf.keys, i, leaf.n - i - 1);
+            System.arraycopy(leaf.values, i + 1, leaf.values, i, leaf.n - i - 1);
+            leaf.n--;
+            leaf.keys[leaf.n] = null;
+            leaf.values[leaf.n] = null;
+            size--;
+            modCount++;
+            return oldValue;
+        }
+        Inner inner = (Inner) node;
+        int c = childIndex(inner, key);
+        V oldValue = delete(inner.children[c], key);
+        if (inner.children[c].n < minKeys) {
+            fixUnderflow(inner, c);
+        }
+        return oldValue;
+    }
+
+    private void fixUnderflow(Inner parent, int c) {
+        /**
+         * borrow one key from the left or right sibling of children[c] if it can
+         * spare one, otherwise merge children[c] with a sibling
+         */
+        if ((c > 0) && (parent.children[c - 1].n > minKeys)) {
+            borrowFromLeft(parent, c);
+        } else if ((c < parent.n) && (parent.children[c + 1].n > minKeys)) {
+            borrowFromRight(parent, c);
+        } else if (c > 0) {
+            merge(parent, c - 1);
+        } else {
+            merge(parent, c);
+        }
+    }
+
+    private void borrowFromLeft(Inner parent, int c) {
+        Node node = parent.children[c];
+        Node left = parent.children[c - 1];
+        System.arraycopy(node.keys, 0, node.keys, 1, node.n);
+        if (node instanceof BTreeMap.Leaf) {
+            Leaf leaf = (Leaf) node;
+            Leaf leftLeaf = (Leaf) left;
+            System.arraycopy(leaf.values, 0, leaf.values, 1, leaf.n);
+            leaf.keys[0] = leftLeaf.keys[left.n - 1];
+            leaf.values[0] = leftLeaf.values[left.n - 1];
+            leftLeaf.values[left.n - 1] = null;
+            parent.keys[c - 1] = leaf.keys[0];
+        } else {
+            Inner inner = (Inner) node;
+            Inner leftInner = (Inner) left;
+            System.arraycopy(inner.children, 0, inner.children, 1, inner.n + 1);
+            inner.keys[0] = parent.keys[c - 1];
+            inner.children[0] = leftInner.children[left.n];
+            leftInner.children[left.n] = null;
+            parent.keys[c - 1] = left.keys[left.n - 1];
+        }
+        left.keys[left.n - 1] = null;
+        left.n--;
+        node.n++;
+    }
+
+    private void borrowFromRight(Inner parent, int c) {
+        Node node = parent.children[c];
+        Node right = parent.children[c + 1];
+        if (node instanceof BTreeMap.Leaf) {
+            Leaf leaf = (Leaf) node;
+            Leaf rightLeaf = (Leaf) right;
+            leaf.keys[leaf.n] = right.keys[0];
+            leaf.values[leaf.n] = rightLeaf.values[0];
+            System.arraycopy(rightLeaf.values, 1, rightLeaf.values, 0, right.n - 1);
+            rightLeaf.values[right.n - 1] = null;
+            System.arraycopy(right.keys, 1, right.keys, 0, right.n - 1);
+            parent.keys[c] = right.keys[0];
+        } else {
+            Inner inner = (Inner) node;
+            Inner rightInner = (Inner) right;
+            inner.keys[inner.n] = parent.keys[c];
+            inner.children[inner.n + 1] = rightInner.children[0];
+            parent.keys[c] = right.keys[0];
+            System.arraycopy(right.keys, 1, right.keys, 0, right.n - 1);
+            System.arraycopy(rightInner.children, 1, rightInner.children, 0, right.n);
+            rightInner.children[right.n] = null;
+        }
+        right.keys[right.n - 1] = null;
+        right.n--;
+        node.n++;
+    }
+
+    private void merge(Inner parent, int c) {
+        /**
+         * append children[c + 1] to children[c] and drop it from parent
+         */
+        Node left = parent.children[c];
+        Node right = parent.children[c + 1];
+        if (left instanceof BTreeMap.Leaf) {
+            Leaf leftLeaf = (Leaf) left;
+            Leaf rightLeaf = (Leaf) right;
+            System.arraycopy(right.keys, 0, left.keys, left.n, right.n);
+            System.arraycopy(rightLeaf.values, 0, leftLeaf.values, left.n, right.n);
+            left.n += right.n;
+            leftLeaf.next = rightLeaf.next;
+        } else {
+            Inner leftInner = (Inner) left;
+            Inner rightInner = (Inner) right;
+            left.keys[left.n] = parent.keys[c]; // the separator comes down
+            System.arraycopy(right.keys, 0, left.keys, left.n + 1, right.n);
+            System.arraycopy(rightInner.children, 0, leftInner.children, left.n + 1, right.n + 1);
+            left.n += right.n + 1;
+        }
+        System.arraycopy(parent.keys, c + 1, parent.keys, c, parent.n - c - 1);
+        System.arraycopy(parent.children, c + 2, parent.children, c + 1, parent.n - c - 1);
+        parent.n--;
+        parent.keys[parent.n] = null;
+        parent.children[parent.n + 1] = null;
+    }
+
+    /** navigation */
+    private TreeMap.Entry<K, V> entry(Leaf leaf, int i) {
+        return new LeafEntry<>(leaf.key(i), leaf.value(i));
+    }
+
+    @Override
+    public TreeMap.Entry<K, V> firstEntry() {
+        Leaf leaf = firstLeaf();
+        return (leaf.n == 0 ? null : entry(leaf, 0));
+    }
+
+    @Override
+    public TreeMap.Entry<K, V> lastEntry() {
+        Leaf leaf = lastLeaf();
+        return (leaf.n == 0 ? null : entry(leaf, leaf.n - 1));
+    }
+
+    @Override
+    public TreeMap.Entry<K, V> ceilingEntry(K key) {
+        return higher(key, true);
+    }
+
+    @Override
+    public TreeMap.Entry<K, V> higherEntry(K key) {
+        return higher(key, false);
+    }
+
+    @Override
+    public TreeMap.Entry<K, V> floorEntry(K key) {
+        return lower(key, true);
+    }
+
+    @Override
+    public TreeMap.Entry<K, V> lowerEntry(K key) {
+        return lower(key, false);
+    }
+
+    private TreeMap.Entry<K, V> higher(K key, boolean inclusive) {
+        /**
+         * every key of the leaves after leafFor(key) is greater than key, so the
+         * answer is in that leaf or first in the next one
+         */
+        Leaf leaf = leafFor(key);
+        int i = search(leaf, key);
+        i = (i >= 0 ? (inclusive ? i : i + 1) : -(i + 1));
+        if (i < leaf.n) {
+            return entry(leaf, i);
+        }
+        return (leaf.next == null ? null : entry(leaf.next, 0));
+    }
+
+    private TreeMap.Entry<K, V> lower(K key, boolean inclusive) {
+        /**
+         * leaves have no back link: remember the subtree left of the path to key,
+         * its last entry is the answer if the leaf on the path has none
+         */
+        Node node = root;
+        Node leftOfPath = null;
+        while (node instanceof BTreeMap.Inner) {
+            Inner inner = (Inner) node;
+            int c = childIndex(inner, key);
+            if (c > 0) {
+                leftOfPath = inner.children[c - 1];
+            }
+            node = inner.children[c];
+        }
+        Leaf leaf = (Leaf) node;
+        int i = search(leaf, key);
+        i = (i >= 0 ? (inclusive ? i : i - 1) : -(i + 1) - 1);
+        if (i >= 0) {
+            return entry(leaf, i);
+        }
+        if (leftOfPath == null) {
+            return null;
+        }
+        while (leftOfPath instanceof BTreeMap.Inner) {
+            leftOfPath = ((Inner) leftOfPath).children[leftOfPath.n];
+        }
+        return entry((Leaf) leftOfPath, leftOfPath.n - 1);
+    }
+
+    /** views */
+    @Override
+    public Iterable<TreeMap.Entry<K, V>> entrySet() {
+        return () -> new entryIterator(firstLeaf(), 0, null);
+    }
+
+    @Override
+    public Iterable<K> keySet() {
+        return () -> new keyIterator();
+    }
+
+    @Override
+    public Iterable<V> valueSet() {
+        return () -> new valueIterator();
+    }
+
+    @Override
+    public Iterable<TreeMap.Entry<K, V>> subMap(K fromKey, K toKey) {
+        /**
+         * @return a view of all entries with key greater than or equal to fromKey, but
+         *         strictly less than toKey
+         */
+        // check invalid arguments
+        if (fromKey.compareTo(toKey) >= 0) {
+            return null;
+        }
+        return () -> {
+            Leaf leaf = leafFor(fromKey);
+            int i = search(leaf, fromKey);
+            return new entryIterator(leaf, (i >= 0 ? i : -(i + 1)), toKey);
+        };
+    }
+
+    private abstract class leafIterator {
+        private Leaf leaf;
+        private int index;
+        private final K toKey; // exclusive bound, or null
+        private final int expectedModCount = modCount;
+        protected int current; // slot of the entry last returned
+
+        leafIterator(Leaf leaf, int index, K toKey) {
+            this.leaf = leaf;
+            this.index = index;
+            this.toKey = toKey;
+            skipExhausted();
+        }
+
+        private void skipExhausted() {
+            while ((leaf != null) && (index >= leaf.n)) {
+                leaf = leaf.next;
+                index = 0;
+            }
+            if ((leaf != null) && (toKey != null) && (leaf.key(index).compareTo(toKey) >= 0)) {
+                leaf = null;
+            }
+        }
+
+        public boolean hasNext() {
+            return (leaf != null);
+        }
+
+        protected Leaf advance() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf l = leaf;
+            current = index++;
+            skipExhausted();
+            return l;
+        }
+    }
+
+    private class entryIterator extends leafIterator implements Iterator<TreeMap.Entry<K, V>> {
+        entryIterator(Leaf leaf, int index, K toKey) {
+            super(leaf, index, toKey);
+        }
+
+        @Override
+        public TreeMap.Entry<K, V> next() {
+            Leaf leaf = advance();
+            return entry(leaf, current);
+        }
+    }
+
+    private class keyIterator extends leafIterator implements Iterator<K> {
+        keyIterator() {
+            super(firstLeaf(), 0, null);
+        }
+
+        @Override
+        public K next() {
+            return advance().key(current);
+        }
+    }
+
+    private class valueIterator extends leafIterator implements Iterator<V> {
+        valueIterator() {
+            super(firstLeaf(), 0, null);
+        }
+
+        @Override
+        public V next() {
+            return advance().value(current);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package bst;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class CachedSortedMap<K extends Comparable<K>, V> implements SortedMap<K, V> {
+    /**
+     * hot-key cache in front of any SortedMap: get tries one slot of a
+     * direct-mapped table of recent (key, value) pairs before it walks the
+     * tree, so a skewed load pays one hash and one equals for its hot keys
+     * instead of log n comparisons
+     *
+     * a slot holds an immutable entry and is never locked. A miss remembers
+     * the entry it saw in the slot, asks the map, and installs its result with
+     * one compareAndSet against that entry; put and remove first change the
+     * map and then overwrite the slot with a fresh empty entry. So a get that
+     * read the map before a write can never install its stale value after the
+     * write, and the cache is as thread-safe as the map behind it. A key that
+     * collides with another simply takes the slot over.
+     *
+     * keys must have a hashCode() consistent with compareTo(), and all
+     * modifications must go through this map; after changing the map directly
+     * (join, union, ...) call invalidateAll().
+     */
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private final SortedMap<K, V> map;
+    private final AtomicReferenceArray<CacheEntry<K, V>> slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachedSortedMap(SortedMap<K, V> map) {
+        this(map, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of slots, rounded up to a power of 2
+     */
+    public CachedSortedMap(SortedMap<K, V> map, int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        this.map = map;
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    private static final class CacheEntry<K, V> {
+        final K key; // null for an empty slot
+        final V value;
+
+        CacheEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private int slot(K key) {
+        // murmur3 32-bit finalizer, every input bit affects the low bits
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h & mask;
+    }
+
+    private void invalidate(K key) {
+        // a new entry every time, so no get in flight can compareAndSet over it
+        slots.set(slot(key), new CacheEntry<>(null, null));
+    }
+
+    /**
+     * empties every slot, for after the map was changed behind this cache
+     */
+    public void invalidateAll() {
+        for (int i = 0; i <= mask; i++) {
+            slots.set(i, new CacheEntry<>(null, null));
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public void resetCounters() {
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public V get(K key) {
+        int i = slot(key);
+        CacheEntry<K, V> entry = slots.get(i);
+        if ((entry != null) && key.equals(entry.key)) {
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+        V value = map.get(key);
+        if (value != null) {
+            // fails if a put or remove (or another miss) got to the slot first
+            slots.compareAndSet(i, entry, new CacheEntry<>(key, value));
+        }
+        return value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V result = map.put(key, value);
+        invalidate(key);
+        return result;
+    }
+
+    @Override
+    public V remove(K key) {
+        V result = map.remove(key);
+        invalidate(key);
+        return result;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return (get(key) != null);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public Entry<K, V> firstEntry() {
+        return map.firstEntry();
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+        return map.lastEntry();
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+        return map.ceilingEntry(key);
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+        return map.floorEntry(key);
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+        return map.lowerEntry(key);
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+        return map.higherEntry(key);
+    }
+
+    @Override
+    public Iterable<K> keySet() {
+        return map.keySet();
+    }
+
+    @Override
+    public Iterable<V> valueSet() {
+        return map.valueSet();
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return map.entrySet();
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) {
+        return map.subMap(fromKey, toKey);
+    }
+}
@@ -0,0 +1,571 @@
+package bst;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+
+public class ConcurrentSplayTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
+    /**
+     * splay tree for concurrent readers: semi-splaying, only now and then, and
+     * never on the way of a read that does not need it
+     *
+     * every read descends under an optimistic stamp of a StampedLock, writes
+     * nothing and validates the stamp at the end (and every few levels, so a
+     * descent racing a rotation cannot run away); if a writer got in between,
+     * it runs once more under the read lock. A get restructures only if the
+     * node lies deeper than depthThreshold and a random draw hits one in
+     * splayOneIn, or if it lies deeper than 2 log n, a path every reader would
+     * keep paying for: it then converts its stamp to the write lock, which
+     * only succeeds if nothing changed since, so the path it recorded is still
+     * the path, and semi-splays that path. When the lock is busy the splay is
+     * skipped rather than waited for. put and remove take the write lock.
+     *
+     * a semi-splay step rotates once at the grandparent in the zig-zig case
+     * and goes on from the parent, and does the usual double rotation in the
+     * zig-zag case: about half the rotations of a splay, and every node on the
+     * path still ends up about half as deep (Sleator and Tarjan). Keys accessed
+     * often climb above depthThreshold and stop costing any writes, so a
+     * skewed read load settles into lock-free reads while the tree stays
+     * adaptive.
+     *
+     * Entries handed out by the navigation methods and iterators are snapshots,
+     * iterators are weakly consistent and never throw
+     * ConcurrentModificationException.
+     */
+
+    private static final int DEPTH_THRESHOLD = 16;
+    private static final int SPLAY_ONE_IN = 8;
+    private static final int VALIDATE_EVERY = 32; // levels between two validations of a stamp, a power of two
+    private static final int BATCH = 64; // entries an iterator copies per read lock
+
+    private final StampedLock lock = new StampedLock();
+    private final int depthThreshold;
+    private final int splayOneIn;
+    private Node<K, V> root;
+    private volatile int size;
+
+    public ConcurrentSplayTree() {
+        this(DEPTH_THRESHOLD, SPLAY_ONE_IN);
+    }
+
+    /**
+     * @param depthThreshold a get semi-splays only nodes deeper than this, the
+     *                       root has depth 0
+     * @param splayOneIn     and then only one time in splayOneIn, 1 for always
+     */
+    public ConcurrentSplayTree(int depthThreshold, int splayOneIn) {
+        if (depthThreshold < 0 || splayOneIn < 1) {
+            throw new IllegalArgumentException("Illegal splay policy: " + depthThreshold + ", " + splayOneIn);
+        }
+        this.depthThreshold = depthThreshold;
+        this.splayOneIn = splayOneIn;
+    }
+
+    private static final class Node<K, V> {
+        final K key; // final, so even a racing reader sees it
+        V value;
+        Node<K, V> left, right;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class SnapshotEntry<K, V> implements TreeMap.Entry<K, V> {
+        private final K key;
+        private final V value;
+
+        SnapshotEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+    }
+
+    // returned by an optimistic descent that saw its stamp invalidated
+    private final Node<K, V> retry = new Node<>(null, null);
+
+    /** semi-splaying, the caller holds the write lock */
+    private static <K, V> Node<K, V> rotate(Node<K, V> parent, Node<K, V> child) {
+        /**
+         * lifts child over parent
+         *
+         * @return child, the new subtree root
+         */
+        if (parent.left == child) {
+            parent.left = child.right;
+            child.right = parent;
+        } else {
+            parent.right = child.left;
+            child.left = parent;
+        }
+        return child;
+    }
+
+    private void semiSplay(Node<K, V>[] path, int depth) {
+        /**
+         * path[0] is the root, path[depth] the node accessed
+         */
+        int i = depth;
+        while (i >= 2) {
+            Node<K, V> x = path[i], y = path[i - 1], z = path[i - 2];
+            Node<K, V> top;
+            if ((y.left == x) == (z.left == y)) {
+                // zig-zig: lift y only, go on from y
+                top = rotate(z, y);
+            } else {
+                // zig-zag: lift x twice, go on from x
+                if (z.left == y) {
+                    z.left = rotate(y, x);
+                } else {
+                    z.right = rotate(y, x);
+                }
+                top = rotate(z, x);
+            }
+            if (i == 2) {
+                root = top;
+            } else if (path[i - 3].left == z) {
+                path[i - 3].left = top;
+            } else {
+                path[i - 3].right = top;
+            }
+            path[i - 2] = top;
+            i -= 2;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Node<K, V>[] push(Node<K, V>[] path, int depth, Node<K, V> node) {
+        if (depth == path.length) {
+            Node<K, V>[] temp = (Node<K, V>[]) new Node[2 * depth];
+            System.arraycopy(path, 0, temp, 0, depth);
+            path = temp;
+        }
+        path[depth] = node;
+        return path;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Node<K, V>[] newPath() {
+        return (Node<K, V>[]) new Node[64];
+    }
+
+    private boolean splayDrawn() {
+        return (splayOneIn == 1 || ThreadLocalRandom.current().nextInt(splayOneIn) == 0);
+    }
+
+    @Override
+    public V get(K key) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            Node<K, V> node = root;
+            int depth = 0;
+            while (node != null) {
+                int cmp = key.compareTo(node.key);
+                if (cmp == 0) {
+                    break;
+                }
+                node = (cmp < 0 ? node.left : node.right);
+                if ((++depth & (VALIDATE_EVERY - 1)) == 0 && !lock.validate(stamp)) {
+                    node = retry;
+                    break;
+                }
+            }
+            if (node != retry) {
+                V value = (node == null ? null : node.value);
+                if (lock.validate(stamp)) {
+                    // a path deeper than 2 log n is paid by every reader, splay it whatever the draw
+                    if ((node != null) && (depth > depthThreshold) && (depth > 2 * log2(size) || splayDrawn())) {
+                        trySemiSplay(stamp, pathTo(key, depth), depth);
+                    }
+                    return value;
+                }
+            }
+        }
+        // a writer got in between
+        stamp = lock.readLock();
+        try {
+            Node<K, V> node = search(key);
+            return (node == null ? null : node.value);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static int log2(int n) {
+        return (32 - Integer.numberOfLeadingZeros(n));
+    }
+
+    private Node<K, V>[] pathTo(K key, int depth) {
+        /**
+         * walks the depth + 1 nodes down to key once more, under the stamp the
+         * first descent validated; only a get about to splay pays for it
+         */
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] path = (Node<K, V>[]) new Node[depth + 1];
+        Node<K, V> node = root;
+        for (int i = 0; i <= depth && node != null; i++) {
+            path[i] = node;
+            node = (key.compareTo(node.key) < 0 ? node.left : node.right);
+        }
+        return path;
+    }
+
+    private void trySemiSplay(long stamp, Node<K, V>[] path, int depth) {
+        long writeStamp = lock.tryConvertToWriteLock(stamp);
+        if (writeStamp == 0L) {
+            return; // changed or busy, another get will do it
+        }
+        try {
+            semiSplay(path, depth);
+        } finally {
+            lock.unlockWrite(writeStamp);
+        }
+    }
+
+    private Node<K, V> search(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        long stamp = lock.writeLock();
+        try {
+            if (root == null) {
+                root = new Node<>(key, value);
+                size = 1;
+                return value;
+            }
+            Node<K, V>[] path = newPath();
+            Node<K, V> node = root;
+            int depth = 0;
+            while (true) {
+                path = push(path, depth, node);
+                int cmp = key.compareTo(node.key);
+                if (cmp == 0) {
+                    // update existed node
+                    V oldValue = node.value;
+                    node.value = value;
+                    if (depth > depthThreshold) {
+                        semiSplay(path, depth);
+                    }
+                    return oldValue;
+                }
+                Node<K, V> next = (cmp < 0 ? node.left : node.right);
+                depth++;
+                if (next == null) {
+                    next = new Node<>(key, value);
+                    if (cmp < 0) {
+                        node.left = next;
+                    } else {
+                        node.right = next;
+                    }
+                    path = push(path, depth, next);
+                    size++;
+                    // the lock is held anyway, keep insertion paths short
+                    if (depth > depthThreshold) {
+                        semiSplay(path, depth);
+                    }
+                    return value;
+                }
+                node = next;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        long stamp = lock.writeLock();
+        try {
+            Node<K, V> parent = null, node = root;
+            while (node != null) {
+                int cmp = key.compareTo(node.key);
+                if (cmp == 0) {
+                    break;
+                }
+                parent = node;
+                node = (cmp < 0 ? node.left : node.right);
+            }
+            if (node == null) {
+                return null;
+            }
+            Node<K, V> replacement;
+            if (node.left == null) {
+                replacement = node.right;
+            } else if (node.right == null) {
+                replacement = node.left;
+            } else {
+                // relink the successor in place of node, keys are final
+                Node<K, V> successorParent = node, successor = node.right;
+                while (successor.left != null) {
+                    successorParent = successor;
+                    successor = successor.left;
+                }
+                if (successorParent != node) {
+                    successorParent.left = successor.right;
+                    successor.right = node.right;
+                }
+                successor.left = node.left;
+                replacement = successor;
+            }
+            if (parent == null) {
+                root = replacement;
+            } else if (parent.left == node) {
+                parent.left = replacement;
+            } else {
+                parent.right = replacement;
+            }
+            size--;
+            return node.value;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return (get(key) != null);
+    }
+
+    private Node<K, V> nearestNode(K key, boolean above, boolean inclusive, long stamp) {
+        /**
+         * with stamp 0 the caller holds the lock, otherwise the descent is
+         * optimistic and gives up with retry once the stamp is invalid
+         *
+         * @return the node with the least key greater than key if above, else
+         *         the greatest less than key, or equal to key if inclusive; the
+         *         first (last) node if key is null; or null
+         */
+        Node<K, V> node = root, candidate = null;
+        int depth = 0;
+        while (node != null) {
+            int cmp = (key == null ? (above ? -1 : 1) : key.compareTo(node.key));
+            if (cmp == 0 && !inclusive) {
+                cmp = (above ? 1 : -1); // step past key
+            }
+            if (cmp == 0) {
+                return node;
+            }
+            if ((cmp < 0) == above) {
+                candidate = node;
+            }
+            node = (cmp < 0 ? node.left : node.right);
+            if (stamp != 0L && (++depth & (VALIDATE_EVERY - 1)) == 0 && !lock.validate(stamp)) {
+                return retry;
+            }
+        }
+        return candidate;
+    }
+
+    private Entry<K, V> nearest(K key, boolean above, boolean inclusive) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            Node<K, V> node = nearestNode(key, above, inclusive, stamp);
+            if (node != retry) {
+                Entry<K, V> entry = snapshot(node);
+                if (lock.validate(stamp)) {
+                    return entry;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return snapshot(nearestNode(key, above, inclusive, 0L));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Entry<K, V> snapshot(Node<K, V> node) {
+        return (node == null ? null : new SnapshotEntry<>(node.key, node.value));
+    }
+
+    @Override
+    public Entry<K, V> firstEntry() {
+        return nearest(null, true, true);
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+        return nearest(null, false, true);
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+        return nearest(key, true, true);
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+        return nearest(key, false, true);
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+        return nearest(key, false, false);
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+        return nearest(key, true, false);
+    }
+
+    @Override
+    public Iterable<K> keySet() {
+        return () -> new keyIterator();
+    }
+
+    @Override
+    public Iterable<V> valueSet() {
+        return () -> new valueIterator();
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return () -> new entryIterator(null, null);
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) {
+        /**
+         * @return a view of all entries with key greater than or equal to fromKey, but
+         *         strictly less than toKey
+         */
+        // check invalid arguments
+        if (fromKey.compareTo(toKey) >= 0) {
+            return null;
+        }
+        return () -> new entryIterator(fromKey, toKey);
+    }
+
+    private int fill(Entry<K, V>[] buffer, K fromKey, boolean inclusive, K toKey) {
+        /**
+         * copies the entries from fromKey (null for the first) below toKey (null
+         * for no bound) in order into buffer, under the read lock
+         *
+         * @return the number of entries copied
+         */
+        long stamp = lock.readLock();
+        try {
+            Node<K, V>[] stack = newPath();
+            int depth = 0;
+            for (Node<K, V> node = root; node != null;) {
+                int cmp = (fromKey == null ? -1 : fromKey.compareTo(node.key));
+                if (cmp < 0 || (inclusive && cmp == 0)) {
+                    stack = push(stack, depth++, node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+            int count = 0;
+            while (depth > 0 && count < buffer.length) {
+                Node<K, V> node = stack[--depth];
+                if ((toKey != null) && (node.key.compareTo(toKey) >= 0)) {
+                    break;
+                }
+                buffer[count++] = snapshot(node);
+                for (Node<K, V> x = node.right; x != null; x = x.left) {
+                    stack = push(stack, depth++, x);
+                }
+            }
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private abstract class batchIterator {
+        /**
+         * copies BATCH entries at a time and resumes after the last key copied,
+         * so no lock is held between calls
+         */
+        @SuppressWarnings("unchecked")
+        private final Entry<K, V>[] buffer = (Entry<K, V>[]) new Entry[BATCH];
+        private final K toKey;
+        private int count, index;
+
+        batchIterator(K fromKey, K toKey) {
+            this.toKey = toKey;
+            this.count = fill(buffer, fromKey, true, toKey);
+        }
+
+        public boolean hasNext() {
+            return (index < count);
+        }
+
+        protected Entry<K, V> nextEntry() {
+            if (index == count) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = buffer[index++];
+            if ((index == count) && (count == BATCH)) {
+                count = fill(buffer, entry.getKey(), false, toKey);
+                index = 0;
+            }
+            return entry;
+        }
+    }
+
+    private class entryIterator extends batchIterator implements Iterator<Entry<K, V>> {
+        entryIterator(K fromKey, K toKey) {
+            super(fromKey, toKey);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            return nextEntry();
+        }
+    }
+
+    private class keyIterator extends batchIterator implements Iterator<K> {
+        keyIterator() {
+            super(null, null);
+        }
+
+        @Override
+        public K next() {
+            return nextEntry().getKey();
+        }
+    }
+
+    private class valueIterator extends batchIterator implements Iterator<V> {
+        valueIterator() {
+            super(null, null);
+        }
+
+        @Override
+        public V next() {
+            return nextEntry().getValue();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package bst;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class FrozenSortedMap<K extends Comparable<K>, V> implements SortedMap<K, V> {
+    /**
+     * read-only sorted map in Eytzinger (BFS) order
+     *
+     * the keys form an implicit complete binary search tree in one array: the
+     * root at keys[1], the children of keys[k] at keys[2k] and keys[2k + 1]. A
+     * search walks k = 2k + (keys[k] < key) without an early exit, taking the
+     * turn from the sign bit of the comparison rather than a branch, and the
+     * first levels share a few cache lines and stay hot. The lower bound is
+     * then recovered from the path by dropping the trailing right turns (the
+     * trailing 1 bits of k).
+     *
+     * in-order successor and predecessor are computed from the index alone, so
+     * subMap and the views iterate without any stack or parent pointer.
+     */
+
+    private final Object[] keys; // 1-based, keys[0] unused
+    private final Object[] values;
+    private final int n;
+
+    private FrozenSortedMap(int size) {
+        this.n = size;
+        this.keys = new Object[size + 1];
+        this.values = new Object[size + 1];
+    }
+
+    /**
+     * @return a frozen copy of map
+     */
+    public static <K extends Comparable<K>, V> FrozenSortedMap<K, V> copyOf(SortedMap<K, V> map) {
+        return fromSorted(map.entrySet().iterator(), map.size());
+    }
+
+    /**
+     * build from entries sorted by strictly ascending key in O(n)
+     *
+     * @throws IllegalArgumentException if the keys are out of order or the
+     *                                  iterator holds fewer than size entries
+     */
+    public static <K extends Comparable<K>, V> FrozenSortedMap<K, V> fromSorted(
+            Iterator<? extends TreeMap.Entry<K, V>> it, int size) {
+        SortedInput.checkSize(size);
+        FrozenSortedMap<K, V> map = new FrozenSortedMap<>(size);
+        map.fill(1, new SortedInput<>(it));
+        return map;
+    }
+
+    /**
+     * build from keys[i] -> values[i], keys sorted in strictly ascending order
+     */
+    public static <K extends Comparable<K>, V> FrozenSortedMap<K, V> fromSorted(K[] keys, V[] values) {
+        SortedInput<K, V> input = new SortedInput<>(keys, values);
+        FrozenSortedMap<K, V> map = new FrozenSortedMap<>(keys.length);
+        map.fill(1, input);
+        return map;
+    }
+
+    private void fill(int k, SortedInput<K, V> input) {
+        /**
+         * an in-order walk of the implicit tree visits the slots in key order
+         */
+        if (k > n) {
+            return;
+        }
+        fill(2 * k, input);
+        input.next();
+        keys[k] = input.key;
+        values[k] = input.value;
+        fill(2 * k + 1, input);
+    }
+
+    /** implicit tree operations, slot 0 stands for "none" */
+    @SuppressWarnings("unchecked")
+    private K key(int k) {
+        return (K) keys[k];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int k) {
+        return (V) values[k];
+    }
+
+    private int lowerBound(K key, boolean inclusive) {
+        /**
+         * @return the slot of the least key greater than (or equal to, if
+         *         inclusive) key, or 0
+         */
+        int k = 1;
+        // the sign bit of the comparison is the turn, no branch to mispredict
+        if (inclusive) {
+            while (k <= n) {
+                k = 2 * k + (key(k).compareTo(key) >>> 31); // keys[k] < key
+            }
+        } else {
+            while (k <= n) {
+                k = 2 * k + (1 ^ (key.compareTo(key(k)) >>> 31)); // keys[k] <= key
+            }
+        }
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    private int first() {
+        if (n == 0) {
+            return 0;
+        }
+        int k = 1;
+        while (2 * k <= n) {
+            k = 2 * k;
+        }
+        return k;
+    }
+
+    private int last() {
+        if (n == 0) {
+            return 0;
+        }
+        int k = 1;
+        while (2 * k + 1 <= n) {
+            k = 2 * k + 1;
+        }
+        return k;
+    }
+
+    private int successor(int k) {
+        if (2 * k + 1 <= n) {
+            // leftmost slot of the right subtree
+            k = 2 * k + 1;
+            while (2 * k <= n) {
+                k = 2 * k;
+            }
+            return k;
+        }
+        // up while k is a right child, then once more
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    private int predecessor(int k) {
+        if (k == 0) {
+            return last(); // predecessor of "none above" is the maximum
+        }
+        if (2 * k <= n) {
+            // rightmost slot of the left subtree
+            k = 2 * k;
+            while (2 * k + 1 <= n) {
+                k = 2 * k + 1;
+            }
+            return k;
+        }
+        // up while k is a left child, then once more
+        return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+    }
+
+    private TreeMap.Entry<K, V> entry(int k) {
+        return (k == 0 ? null : new FrozenEntry<>(key(k), value(k)));
+    }
+
+    private static final class FrozenEntry<K, V> implements TreeMap.Entry<K, V> {
+        private final K key;
+        private final V value;
+
+        FrozenEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public V get(K key) {
+        int k = lowerBound(key, true);
+        if ((k == 0) || (key.compareTo(key(k)) != 0)) {
+            return null;
+        }
+        return value(k);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        int k = lowerBound(key, true);
+        return ((k != 0) && (key.compareTo(key(k)) == 0));
+    }
+
+    @Override
+    public V put(K key, V value) {
+        throw new UnsupportedOperationException("frozen map");
+    }
+
+    @Override
+    public V remove(K key) {
+        throw new UnsupportedOperationException("frozen map");
+    }
+
+    @Override
+    public TreeMap.Entry<K, V> firstEntry() {
+        return entry(first());
+    }
+
+    @Override
+    public TreeMap.Entry<K, V> lastEntry() {
+        return entry(last());
+    }
+
+    @Override
+    public TreeMap.Entry<K, V> ceilingEntry(K key) {
+        return entry(lowerBound(key, true));
+    }
+
+    @Override
+    public TreeMap.Entry<K, V> higherEntry(K key) {
+        return entry(lowerBound(key, false));
+    }
+
+    @Override
+    public TreeMap.Entry<K, V> floorEntry(K key) {
+        return entry(predecessor(lowerBound(key, false)));
+    }
+
+    @Override
+    public TreeMap.Entry<K, V> lowerEntry(K key) {
+        return entry(predecessor(lowerBound(key, true)));
+    }
+
+    @Override
+    public Iterable<K> keySet() {
+        return () -> new keyIterator();
+    }
+
+    @Override
+    public Iterable<V> valueSet() {
+        return () -> new valueIterator();
+    }
+
+    @Override
+    public Iterable<TreeMap.Entry<K, V>> entrySet() {
+        return () -> new entryIterator(first(), null);
+    }
+
+    @Override
+    public Iterable<TreeMap.Entry<K, V>> subMap(K fromKey, K toKey) {
+        /**
+         * @return a view of all entries with key greater than or equal to fromKey, but
+         *         strictly less than toKey
+         */
+        // check invalid arguments
+        if (fromKey.compareTo(toKey) >= 0) {
+            return null;
+        }
+        return () -> new entryIterator(lowerBound(fromKey, true), toKey);
+    }
+
+    private abstract class slotIterator {
+        private int next; // 0 when exhausted
+        private final K toKey; // exclusive bound, or null
+
+        slotIterator(int first, K toKey) {
+            this.toKey = toKey;
+            this.next = bounded(first);
+        }
+
+        private int bounded(int k) {
+            if ((k == 0) || ((toKey != null) && (key(k).compareTo(toKey) >= 0))) {
+                return 0;
+            }
+            return k;
+        }
+
+        public boolean hasNext() {
+            return (next != 0);
+        }
+
+        protected int nextSlot() {
+            if (next == 0) {
+                throw new NoSuchElementException();
+            }
+            int k = next;
+            next = bounded(successor(k));
+            return k;
+        }
+    }
+
+    private class entryIterator extends slotIterator implements Iterator<TreeMap.Entry<K, V>> {
+        entryIterator(int first, K toKey) {
+            super(first, toKey);
+        }
+
+        @Override
+        public TreeMap.Entry<K, V> next() {
+            return entry(nextSlot());
+        }
+    }
+
+    private class keyIterator extends slotIterator implements Iterator<K> {
+        keyIterator() {
+            super(first(), null);
+        }
+
+        @Override
+        public K next() {
+            return key(nextSlot());
+        }
+    }
+
+    private class valueIterator extends slotIterator implements Iterator<V> {
+        valueIterator() {
+            super(first(), null);
+        }
+
+        @Override
+        public V next() {
+            return value(nextSlot());
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package bst;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+public class PersistentRedBlackTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
+    /**
+     * persistent (immutable, structurally shared) left-leaning red-black tree
+     *
+     * nodes are never modified once published: put and remove copy the nodes on
+     * the search path and share every other subtree with the old version, then
+     * publish the new root with a CAS, retrying if another writer got there
+     * first. A version is therefore just a root, snapshot() is O(1), and any
+     * number of threads may read or iterate a version without locking while
+     * writers move on. There are no parent pointers and no sentinel, each node
+     * caches the size of its subtree so that size() is read from the root.
+     *
+     * iterators walk the version that was current when they were created, they
+     * never observe later writes and never throw ConcurrentModificationException.
+     */
+
+    private static final boolean RED = true;
+    private static final boolean BLACK = false;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<PersistentRedBlackTree, Node> ROOT = AtomicReferenceFieldUpdater
+            .newUpdater(PersistentRedBlackTree.class, Node.class, "root");
+
+    private volatile Node<K, V> root;
+
+    public PersistentRedBlackTree() {
+    }
+
+    private PersistentRedBlackTree(Node<K, V> root) {
+        this.root = root;
+    }
+
+    private static final class Node<K, V> implements TreeMap.Entry<K, V> {
+        final K key;
+        final V value;
+        final boolean color;
+        final Node<K, V> left, right;
+        final int size; // nodes in the subtree rooted here
+
+        Node(K key, V value, boolean color, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.color = color;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        Node<K, V> withLeft(Node<K, V> left) {
+            return new Node<>(key, value, color, left, right);
+        }
+
+        Node<K, V> withRight(Node<K, V> right) {
+            return new Node<>(key, value, color, left, right);
+        }
+
+        Node<K, V> withColor(boolean color) {
+            return (this.color == color ? this : new Node<>(key, value, color, left, right));
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * @return an independent map sharing every node with this one, O(1); writes to
+     *         either map are not visible in the other
+     */
+    public PersistentRedBlackTree<K, V> snapshot() {
+        return new PersistentRedBlackTree<>(root);
+    }
+
+    /** utility function */
+    private static int size(Node<?, ?> node) {
+        return (node == null ? 0 : node.size);
+    }
+
+    private static boolean isRed(Node<?, ?> node) {
+        return ((node != null) && (node.color == RED));
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    private Node<K, V> search(Node<K, V> node, K key) {
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                node = node.right;
+            } else {
+                break;
+            }
+        }
+        return node;
+    }
+
+    @Override
+    public V get(K key) {
+        Node<K, V> node = search(root, key);
+        return (node == null ? null : node.value);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return (search(root, key) != null);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        while (true) {
+            Node<K, V> oldRoot = root;
+            Node<K, V> oldNode = search(oldRoot, key);
+            Node<K, V> newRoot = insert(oldRoot, key, value).withColor(BLACK);
+            if (ROOT.compareAndSet(this, oldRoot, newRoot)) {
+                return (oldNode == null ? value : oldNode.value);
+            }
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        while (true) {
+            Node<K, V> oldRoot = root;
+            Node<K, V> oldNode = search(oldRoot, key);
+            if (oldNode == null) {
+                return null;
+            }
+            Node<K, V> h = oldRoot;
+            if (!isRed(h.left) && !isRed(h.right)) {
+                h = h.withColor(RED);
+            }
+            Node<K, V> newRoot = delete(h, key);
+            if (newRoot != null) {
+                newRoot = newRoot.withColor(BLACK);
+            }
+            if (ROOT.compareAndSet(this, oldRoot, newRoot)) {
+                return oldNode.value;
+            }
+        }
+    }
+
+    /** left-leaning red-black tree operations, each returns a new subtree root */
+    private Node<K, V> insert(Node<K, V> h, K key, V value) {
+        if (h == null) {
+            return new Node<>(key, value, RED, null, null);
+        }
+        int cmp = key.compareTo(h.key);
+        if (cmp < 0) {
+            h = h.withLeft(insert(h.left, key, value));
+        } else if (cmp > 0) {
+            h = h.withRight(insert(h.right, key, value));
+        } else {
+            h = new Node<>(key, value, h.color, h.left, h.right);
+        }
+        return balance(h);
+    }
+
+    private Node<K, V> delete(Node<K, V> h, K key) {
+        /**
+         * key must be present in the subtree of h
+         */
+        if (key.compareTo(h.key) < 0) {
+            if (!isRed(h.left) && !isRed(h.left.left)) {
+                h = moveRedLeft(h);
+            }
+            h = h.withLeft(delete(h.left, key));
+        } else {
+            if (isRed(h.left)) {
+                h = rotateRight(h);
+            }
+            if ((key.compareTo(h.key) == 0) && (h.right == null)) {
+                return null;
+            }
+            if (!isRed(h.right) && !isRed(h.right.left)) {
+                h = moveRedRight(h);
+            }
+            if (key.compareTo(h.key) == 0) {
+                // replace h by its successor
+                Node<K, V> succ = h.right;
+                while (succ.left != null) {
+                    succ = succ.left;
+                }
+                h = new Node<>(succ.key, succ.value, h.color, h.left, deleteMin(h.right));
+            } else {
+                h = h.withRight(delete(h.right, key));
+            }
+        }
+        return balance(h);
+    }
+
+    private Node<K, V> deleteMin(Node<K, V> h) {
+        if (h.left == null) {
+            return null;
+        }
+        if (!isRed(h.left) && !isRed(h.left.left)) {
+            h = moveRedLeft(h);
+        }
+        return balance(h.withLeft(deleteMin(h.left)));
+    }
+
+    private Node<K, V> rotateLeft(Node<K, V> h) {
+        /**
+         * turn h to be h.right's new left node, h.right takes h's color
+         */
+        Node<K, V> x = h.right;
+        Node<K, V> newH = new Node<>(h.key, h.value, RED, h.left, x.left);
+        return new Node<>(x.key, x.value, h.color, newH, x.right);
+    }
+
+    private Node<K, V> rotateRight(Node<K, V> h) {
+        /**
+         * turn h to be h.left's new right node, h.left takes h's color
+         */
+        Node<K, V> x = h.left;
+        Node<K, V> newH = new Node<>(h.key, h.value, RED, x.right, h.right);
+        return new Node<>(x.key, x.value, h.color, x.left, newH);
+    }
+
+    private Node<K, V> flipColors(Node<K, V> h) {
+        return new Node<>(h.key, h.value, !h.color, h.left.withColor(!h.left.color),
+                h.right.withColor(!h.right.color));
+    }
+
+    private Node<K, V> moveRedLeft(Node<K, V> h) {
+        /**
+         * h is red and both h.left and h.left.left are black, make h.left or one of
+         * its children red
+         */
+        h = flipColors(h);
+        if (isRed(h.right.left)) {
+            h = h.withRight(rotateRight(h.right));
+            h = rotateLeft(h);
+            h = flipColors(h);
+        }
+        return h;
+    }
+
+    private Node<K, V> moveRedRight(Node<K, V> h) {
+        /**
+         * h is red and both h.right and h.right.left are black, make h.right or one
+         * of its children red
+         */
+        h = flipColors(h);
+        if (isRed(h.left.left)) {
+            h = rotateRight(h);
+            h = flipColors(h);
+        }
+        return h;
+    }
+
+    private Node<K, V> balance(Node<K, V> h) {
+        /**
+         * restore the left-leaning invariants at h on the way up
+         */
+        if (isRed(h.right) && !isRed(h.left)) {
+            h = rotateLeft(h);
+        }
+        if (isRed(h.left) && isRed(h.left.left)) {
+            h = rotateRight(h);
+        }
+        if (isRed(h.left) && isRed(h.right)) {
+            h = flipColors(h);
+        }
+        return h;
+    }
+
+    /** navigation, on the version current at the call */
+    @Override
+    public Entry<K, V> firstEntry() {
+        Node<K, V> node = root;
+        while ((node != null) && (node.left != null)) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+        Node<K, V> node = root;
+        while ((node != null) && (node.right != null)) {
+            node = node.right;
+        }
+        return node;
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+        return ceilingNode(key, true);
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+        return floorNode(key, true);
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+        return floorNode(key, false);
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+        return ceilingNode(key, false);
+    }
+
+    private Node<K, V> ceilingNode(K key, boolean inclusive) {
+        /**
+         * @return the node with the least key greater than (or equal to, if
+         *         inclusive) key, or null
+         */
+        Node<K, V> node = root, candidate = null;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if ((cmp < 0) || (inclusive && cmp == 0)) {
+                candidate = node;
+                if (cmp == 0) {
+                    break;
+                }
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return candidate;
+    }
+
+    private Node<K, V> floorNode(K key, boolean inclusive) {
+        /**
+         * @return the node with the greatest key less than (or equal to, if
+         *         inclusive) key, or null
+         */
+        Node<K, V> node = root, candidate = null;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if ((cmp > 0) || (inclusive && cmp == 0)) {
+                candidate = node;
+                if (cmp == 0) {
+                    break;
+                }
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return candidate;
+    }
+
+    @Override
+    public Iterable<K> keySet() {
+        return () -> new keyIterator();
+    }
+
+    @Override
+    public Iterable<V> valueSet() {
+        return () -> new valueIterator();
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return () -> new entryIterator(null, null);
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) {
+        /**
+         * @return a view of all entries with key greater than or equal to fromKey, but
+         *         strictly less than toKey
+         */
+        // check invalid arguments
+        if (fromKey.compareTo(toKey) >= 0) {
+            return null;
+        }
+        return () -> new entryIterator(fromKey, toKey);
+    }
+
+    private abstract class nodeIterator {
+        /**
+         * in-order cursor over an explicit stack of the nodes whose left subtree
+         * is being visited, from fromKey (inclusive) up to toKey (exclusive),
+         * null for no bound; the stack holds one path of the version captured
+         * at creation, at most 2 log(n + 1) nodes
+         */
+        @SuppressWarnings("unchecked")
+        private final Node<K, V>[] stack = (Node<K, V>[]) new Node[2 * 32];
+        private int depth;
+        private final K toKey;
+
+        nodeIterator(K fromKey, K toKey) {
+            this.toKey = toKey;
+            Node<K, V> node = root;
+            while (node != null) {
+                if ((fromKey == null) || (fromKey.compareTo(node.key) <= 0)) {
+                    stack[depth++] = node;
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+            bound();
+        }
+
+        private void bound() {
+            if ((depth > 0) && (toKey != null) && (stack[depth - 1].key.compareTo(toKey) >= 0)) {
+                depth = 0;
+            }
+        }
+
+        public boolean hasNext() {
+            return (depth > 0);
+        }
+
+        protected Node<K, V> nextNode() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = stack[--depth];
+            for (Node<K, V> x = node.right; x != null; x = x.left) {
+                stack[depth++] = x;
+            }
+            bound();
+            return node;
+        }
+    }
+
+    private class entryIterator extends nodeIterator implements Iterator<Entry<K, V>> {
+        entryIterator(K fromKey, K toKey) {
+            super(fromKey, toKey);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            return nextNode();
+        }
+    }
+
+    private class keyIterator extends nodeIterator implements Iterator<K> {
+        keyIterator() {
+            super(null, null);
+        }
+
+        @Override
+        public K next() {
+            return nextNode().key;
+        }
+    }
+
+    private class valueIterator extends nodeIterator implements Iterator<V> {
+        valueIterator() {
+            super(null, null);
+        }
+
+        @Override
+        public V next() {
+            return nextNode().value;
+        }
+    }
+}
@@ -1,63 +1,170 @@
 package bst;
 
-public class RedBlackTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import metrics.Instrumented;
+import metrics.MetricsRecorder;
+import metrics.StructureMetrics;
+import parallel.ParallelBulk;
+
+public class RedBlackTree<K extends Comparable<K>, V> implements SortedMap<K, V>, Instrumented {
 
     private static final boolean RED = true;
     private static final boolean BLACK = false;
 
-    private final Node sentinel;
-    private Node root;
+    /**
+     * the leaf of every tree, shared so that join operations move nodes between
+     * trees as they are; its fields are never written, remove keeps the parent
+     * of a sentinel in a local instead
+     */
+    @SuppressWarnings("rawtypes")
+    private static final Node NIL = new Node<>(null, null);
+
+    static {
+        NIL.color = BLACK;
+        NIL.size = 0;
+    }
+
+    private final Node<K, V> sentinel = nil();
+    private Node<K, V> root;
     private int size;
+    private int modCount; // structural changes, for fail-fast iterators
 
-    protected long rotateCount; // count rotation
-    protected long cmpCount; // count comparison
+    private MetricsRecorder metrics; // null unless enabled
 
     public RedBlackTree() {
-        this.sentinel = new Node(null, null);
-        this.sentinel.color = BLACK;
         this.root = sentinel;
     }
 
-    private final class Node {
+    @SuppressWarnings("unchecked")
+    private static <K, V> Node<K, V> nil() {
+        return NIL;
+    }
+
+    /**
+     * build a balanced tree from entries sorted by strictly ascending key in
+     * O(n), comparing each key only with its predecessor. Every level is black
+     * except the deepest one when it is incomplete, which is red.
+     *
+     * @throws IllegalArgumentException if the keys are out of order or the
+     *                                  iterator holds fewer than size entries
+     */
+    public static <K extends Comparable<K>, V> RedBlackTree<K, V> fromSorted(
+            Iterator<? extends TreeMap.Entry<K, V>> it, int size) {
+        SortedInput.checkSize(size);
+        return build(size, new SortedInput<>(it));
+    }
+
+    /**
+     * build a balanced tree from keys[i] -> values[i], keys sorted in strictly
+     * ascending order
+     */
+    public static <K extends Comparable<K>, V> RedBlackTree<K, V> fromSorted(K[] keys, V[] values) {
+        return build(keys.length, new SortedInput<>(keys, values));
+    }
+
+    private static <K extends Comparable<K>, V> RedBlackTree<K, V> build(int size, SortedInput<K, V> input) {
+        RedBlackTree<K, V> tree = new RedBlackTree<>();
+        // depth of the deepest level, red unless the tree is perfect
+        int redLevel = 0;
+        for (int m = size - 1; m >= 0; m = m / 2 - 1) {
+            redLevel++;
+        }
+        tree.setRoot(tree.buildFromSorted(0, 0, size - 1, redLevel, input));
+        return tree;
+    }
+
+    private Node<K, V> buildFromSorted(int level, int lo, int hi, int redLevel, SortedInput<K, V> input) {
+        /**
+         * build the subtree of the entries lo..hi in order: left subtree, middle
+         * node, right subtree
+         */
+        if (lo > hi) {
+            return sentinel;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node<K, V> left = buildFromSorted(level + 1, lo, mid - 1, redLevel, input);
+        input.next();
+        Node<K, V> node = new Node<>(input.key, input.value);
+        node.color = (level == redLevel ? RED : BLACK);
+        Node<K, V> right = buildFromSorted(level + 1, mid + 1, hi, redLevel, input);
+        node.left = left;
+        node.right = right;
+        if (left != sentinel) {
+            left.parent = node;
+        }
+        if (right != sentinel) {
+            right.parent = node;
+        }
+        node.size = left.size + right.size + 1;
+        return node;
+    }
+
+    private static final class Node<K, V> implements TreeMap.Entry<K, V> {
         K key;
         V value;
-        Node parent;
-        Node left, right;
+        Node<K, V> parent;
+        Node<K, V> left, right;
         boolean color;
-        int size;
+        int size; // nodes in the subtree rooted here, 0 for the sentinel
 
         public Node(K key, V value) {
             this.key = key;
             this.value = value;
             this.color = RED;
-            this.left = RedBlackTree.this.sentinel;
-            this.right = RedBlackTree.this.sentinel;
+            this.size = 1;
+            this.left = nil();
+            this.right = nil();
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
         }
     }
 
     public V get(K key) {
-        Node node = root;
+        Node<K, V> node = root;
+        int cmps = 0;
         while (node != sentinel) {
-            cmpCount++;
-            if (key.compareTo(node.key) < 0) {
+            cmps++;
+            int cmp = key.compareTo(node.key);
+            if (cmp < 0) {
                 node = node.left;
-            } else if (key.compareTo(node.key) > 0) {
+            } else if (cmp > 0) {
                 node = node.right;
             } else {
                 break;
             }
         }
+        if (metrics != null) {
+            metrics.compare(cmps);
+        }
         if (node == sentinel) {
             return null;
         }
         return node.value;
     }
 
-    private void rotateLeft(Node node) {
+    private void rotateLeft(Node<K, V> node) {
         /**
          * turn node to be node.right's new left node
          */
-        Node y = node.right;
+        Node<K, V> y = node.right;
         node.right = y.left; // turn y.left subtree to node.right subtree
         if (y.left != sentinel) {
             y.left.parent = node;
@@ -73,14 +180,19 @@ public class RedBlackTree<K extends Comparable<K>, V> implements SortedMap<K, V>
         }
         y.left = node; // put node on y.left
         node.parent = y;
-        rotateCount++;
+        // update subtree sizes
+        y.size = node.size;
+        node.size = node.left.size + node.right.size + 1;
+        if (metrics != null) {
+            metrics.rotate();
+        }
     }
 
-    private void rotateRight(Node node) {
+    private void rotateRight(Node<K, V> node) {
         /**
          * turn node to be node.right's new right node
          */
-        Node x = node.left;
+        Node<K, V> x = node.left;
         node.left = x.right; // turn x's right subtree to node's left subtree
         if (x.right != sentinel) {
             x.right.parent = node;
@@ -96,15 +208,18 @@ public class RedBlackTree<K extends Comparable<K>, V> implements SortedMap<K, V>
         }
         x.right = node; // put node on x.right
         node.parent = x;
-        rotateCount++;
+        // update subtree sizes
+        x.size = node.size;
+        node.size = node.left.size + node.right.size + 1;
+        if (metrics != null) {
+            metrics.rotate();
+        }
     }
 
-    private void insertFixUp(Node node) {
+    private void insertFixUp(Node<K, V> node) {
         while (node.parent.color == RED) {
-            cmpCount++;
             if (node.parent == node.parent.parent.left) {
-                Node uncle = node.parent.parent.right;
-                cmpCount++;
+                Node<K, V> uncle = node.parent.parent.right;
                 if (uncle.color == RED) {
                     // case: left leaning, RED -/ RED -/ BLACK -\ BLACK
                     // flip color
@@ -124,10 +239,8 @@ public class RedBlackTree<K extends Comparable<K>, V> implements SortedMap<K, V>
                     node.parent.parent.color = RED;
                     rotateRight(node.parent.parent);
                 }
-                cmpCount++;
             } else { // node.parent == node.parent.parent.right
-                Node uncle = node.parent.parent.left;
-                cmpCount++;
+                Node<K, V> uncle = node.parent.parent.left;
                 if (uncle.color == RED) {
                     // case: right leaning, BLACK -/ BLACK -\ RED -\ RED
                     // flip color
@@ -147,7 +260,6 @@ public class RedBlackTree<K extends Comparable<K>, V> implements SortedMap<K, V>
                     node.parent.parent.color = RED;
                     rotateLeft(node.parent.parent);
                 }
-                cmpCount++;
             }
         }
         root.color = BLACK;
@@ -155,121 +267,153 @@ public class RedBlackTree<K extends Comparable<K>, V> implements SortedMap<K, V>
 
     public V put(K key, V value) {
         // search, p points to the new node's parent
-        Node p = sentinel, t = root;
+        Node<K, V> p = sentinel, t = root;
+        int cmp = 0, cmps = 0;
         while (t != sentinel) {
             p = t;
-            cmpCount++;
-            if (key.compareTo(t.key) < 0) {
+            cmps++;
+            cmp = key.compareTo(t.key);
+            if (cmp < 0) {
                 t = t.left;
-            } else if (key.compareTo(t.key) > 0) {
+            } else if (cmp > 0) {
                 t = t.right;
             } else {
+                if (metrics != null) {
+                    metrics.compare(cmps);
+                }
                 V oldValue = t.value;
                 t.key = key;
                 t.value = value;
                 return oldValue;
             }
         }
-        Node newNode = new Node(key, value);
+        Node<K, V> newNode = new Node<>(key, value);
         newNode.parent = p;
         if (p == sentinel) {
             root = newNode;
-        } else if (key.compareTo(p.key) < 0) {
+        } else if (cmp < 0) {
             p.left = newNode;
         } else { // cmp > 0
             p.right = newNode;
         }
-        cmpCount++;
+        if (metrics != null) {
+            metrics.compare(cmps);
+        }
         size++;
+        modCount++;
+        for (Node<K, V> x = p; x != sentinel; x = x.parent) {
+            x.size++;
+        }
         insertFixUp(newNode);
         return value;
     }
 
-    private void deleteFixUp(Node node) {
+    private void deleteFixUp(Node<K, V> node, Node<K, V> parent) {
+        /**
+         * node may be the sentinel, so its parent is passed along and tracked
+         * here rather than read from node.parent
+         */
         while ((node != root) && (node.color == BLACK)) {
-            if (node == node.parent.left) {
-                Node sibling = node.parent.right;
+            if (node == parent.left) {
+                Node<K, V> sibling = parent.right;
                 if (sibling.color == RED) {
                     sibling.color = BLACK;
-                    node.parent.color = RED;
-                    rotateLeft(node.parent);
-                    sibling = node.parent.right;
+                    parent.color = RED;
+                    rotateLeft(parent);
+                    sibling = parent.right;
                 }
                 if ((sibling.left.color == BLACK) && (sibling.right.color == BLACK)) {
                     sibling.color = RED;
-                    node = node.parent;
+                    node = parent;
+                    parent = node.parent;
                 } else if (sibling.right.color == BLACK) {
                     sibling.left.color = BLACK;
                     sibling.color = RED;
                     rotateRight(sibling);
-                    sibling = node.parent.right;
+                    sibling = parent.right;
                 } else {
-                    sibling.color = node.parent.color;
-                    node.parent.color = BLACK;
+                    sibling.color = parent.color;
+                    parent.color = BLACK;
                     sibling.right.color = BLACK;
-                    rotateLeft(node.parent);
+                    rotateLeft(parent);
                     node = root;
                 }
             } else {
-                Node sibling = node.parent.left;
+                Node<K, V> sibling = parent.left;
                 if (sibling.color == RED) {
                     sibling.color = BLACK;
-                    node.parent.color = RED;
-                    rotateRight(node.parent);
-                    sibling = node.parent.left;
+                    parent.color = RED;
+                    rotateRight(parent);
+                    sibling = parent.left;
                 }
                 if ((sibling.left.color == BLACK) && (sibling.right.color == BLACK)) {
                     sibling.color = RED;
-                    node = node.parent;
+                    node = parent;
+                    parent = node.parent;
                 } else if (sibling.left.color == BLACK) {
                     sibling.right.color = BLACK;
                     sibling.color = RED;
                     rotateLeft(sibling);
-                    sibling = node.parent.left;
+                    sibling = parent.left;
                 } else {
-                    sibling.color = node.parent.color;
-                    node.parent.color = BLACK;
+                    sibling.color = parent.color;
+                    parent.color = BLACK;
                     sibling.left.color = BLACK;
-                    rotateRight(node.parent);
+                    rotateRight(parent);
                     node = root;
                 }
             }
         }
-        node.color = BLACK;
+        if (node != sentinel) {
+            node.color = BLACK;
+        }
     }
 
     public V remove(K key) {
         // search
-        Node node = root;
+        Node<K, V> node = root;
+        int cmps = 0;
         while (node != sentinel) {
-            if (key.compareTo(node.key) < 0) {
+            cmps++;
+            int cmp = key.compareTo(node.key);
+            if (cmp < 0) {
                 node = node.left;
-            } else if (key.compareTo(node.key) > 0) {
+            } else if (cmp > 0) {
                 node = node.right;
             } else {
                 break;
             }
         }
+        if (metrics != null) {
+            metrics.compare(cmps);
+        }
         // unsuccessful search
         if (node == sentinel) {
             return null;
         }
-        // remove
-        Node fixPoint = node;
-        boolean movedColor = fixPoint.color;
+        // remove, the subtrees on the path to the unlinked node lose one entry
+        Node<K, V> unlinked = ((node.left == sentinel) || (node.right == sentinel) ? node : minimum(node.right));
+        for (Node<K, V> x = unlinked.parent; x != sentinel; x = x.parent) {
+            x.size--;
+        }
+        Node<K, V> fixPoint, fixParent; // fixPoint may be the sentinel, which keeps no parent
+        boolean movedColor = node.color;
         if (node.left == sentinel) {
             fixPoint = node.right;
+            fixParent = node.parent;
             transplant(node, node.right);
         } else if (node.right == sentinel) {
             fixPoint = node.left;
+            fixParent = node.parent;
             transplant(node, node.left);
         } else {
-            Node succ = minimum(node.right);
+            Node<K, V> succ = unlinked;
             movedColor = succ.color;
             fixPoint = succ.right;
             if (succ.parent == node) {
-                fixPoint.parent = succ;
+                fixParent = succ;
             } else {
+                fixParent = succ.parent;
                 transplant(succ, succ.right);
                 succ.right = node.right;
                 succ.right.parent = succ;
@@ -278,16 +422,18 @@ public class RedBlackTree<K extends Comparable<K>, V> implements SortedMap<K, V>
             succ.left.parent = succ;
             transplant(node, succ);
             succ.color = node.color;
+            succ.size = node.size;
         }
         if (movedColor == BLACK) {
-            deleteFixUp(fixPoint);
+            deleteFixUp(fixPoint, fixParent);
         }
         V oldValue = node.value;
         size--;
+        modCount++;
         return oldValue;
     }
 
-    private void transplant(Node u, Node v) {
+    private void transplant(Node<K, V> u, Node<K, V> v) {
         /**
          * utility function when removing node replace the subtree rooted at u with the
          * subtree rooted at v u's parent becomes v's parent replace u as a child of its
@@ -300,22 +446,38 @@ public class RedBlackTree<K extends Comparable<K>, V> implements SortedMap<K, V>
         } else {
             u.parent.right = v;
         }
-        v.parent = u.parent;
+        if (v != sentinel) {
+            v.parent = u.parent;
+        }
     }
 
-    private Node minimum(Node node) {
+    private Node<K, V> minimum(Node<K, V> node) {
         while (node.left != sentinel) {
-            cmpCount++;
             node = node.left;
         }
         return node;
     }
 
+    @Override
+    public void setMetricsEnabled(boolean enabled) {
+        this.metrics = (enabled ? new MetricsRecorder() : null);
+    }
+
+    @Override
+    public boolean isMetricsEnabled() {
+        return (metrics != null);
+    }
+
+    @Override
+    public StructureMetrics getMetrics() {
+        return metrics;
+    }
+
     public int size() {
         return size;
     }
 
-    private int getHeight(Node node, int depth) {
+    private int getHeight(Node<K, V> node, int depth) {
         if (node == sentinel) {
             return depth;
         }
@@ -330,67 +492,722 @@ public class RedBlackTree<K extends Comparable<K>, V> implements SortedMap<K, V>
 
     @Override
     public boolean containsKey(K key) {
-        // TODO Auto-generated method stub
+        Node<K, V> node = root;
+        while (node != sentinel) {
+            int cmp = key.compareTo(node.key);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                node = node.right;
+            } else {
+                return true;
+            }
+        }
         return false;
     }
 
+    /**
+     * join-based operations: join, split, union, intersection and difference
+     *
+     * everything is built on join(left, node, right), which links two trees
+     * and a middle node whose key lies between them by descending the spine of
+     * the tree with the greater black height down to a black node of the
+     * other's black height, then fixing a red-red pair with one rotation on
+     * the way up. The set operations split one tree at the root key of the
+     * other and recurse on both halves in O(m log(n / m + 1)) for trees of
+     * sizes m <= n, forking the halves into the common ForkJoinPool while both
+     * hold more than PARALLEL_SIZE nodes. They move the nodes of the argument
+     * tree, which is left empty.
+     */
+    private static final int PARALLEL_SIZE = 4096;
+
+    /**
+     * move all entries of other, whose keys must be greater than every key of
+     * this tree, to this tree; other is left empty
+     *
+     * @throws IllegalArgumentException if the key ranges overlap
+     */
+    public void join(RedBlackTree<K, V> other) {
+        if (other == this) {
+            throw new IllegalArgumentException("cannot join a tree with itself");
+        }
+        if (other.root == other.sentinel) {
+            return;
+        }
+        if ((root != sentinel) && (maximum(root).key.compareTo(other.minimum(other.root).key) >= 0)) {
+            throw new IllegalArgumentException("key ranges overlap");
+        }
+        Node<K, V> otherRoot = other.root;
+        other.clearAll();
+        joiner j = new joiner();
+        setRoot(j.join2(root, blackHeight(root), otherRoot, blackHeight(otherRoot)));
+    }
+
+    /**
+     * keep the entries with key strictly less than key in this tree, and move
+     * the others to a new tree
+     *
+     * the split is O(log n), the sizes of both parts are read off their roots
+     *
+     * @return a tree of the entries with key greater than or equal to key
+     */
+    public RedBlackTree<K, V> split(K key) {
+        joiner j = new joiner();
+        j.split(root, blackHeight(root), key);
+        Node<K, V> lower = j.left;
+        Node<K, V> upper = (j.found == null ? j.right : j.join(sentinel, 0, j.found, j.right, j.rightHeight));
+        RedBlackTree<K, V> tree = new RedBlackTree<>();
+        setRoot(lower);
+        tree.setRoot(upper);
+        return tree;
+    }
+
+    /**
+     * add the entries of other to this tree, other's value winning for keys in
+     * both; other is left empty
+     */
+    public void union(RedBlackTree<K, V> other) {
+        setOperation(other, SetOperation.UNION);
+    }
+
+    /**
+     * keep only the entries whose key is also in other; other is left empty
+     */
+    public void intersection(RedBlackTree<K, V> other) {
+        setOperation(other, SetOperation.INTERSECTION);
+    }
+
+    /**
+     * remove the entries whose key is in other; other is left empty
+     */
+    public void difference(RedBlackTree<K, V> other) {
+        setOperation(other, SetOperation.DIFFERENCE);
+    }
+
+    private enum SetOperation {
+        UNION, INTERSECTION, DIFFERENCE
+    }
+
+    private void setOperation(RedBlackTree<K, V> other, SetOperation op) {
+        if (other == this) {
+            throw new IllegalArgumentException("cannot combine a tree with itself");
+        }
+        Node<K, V> otherRoot = other.root;
+        other.clearAll();
+        setTask task = new setTask(op, root, blackHeight(root), otherRoot, blackHeight(otherRoot));
+        if ((root.size > PARALLEL_SIZE) && (otherRoot.size > PARALLEL_SIZE)) {
+            setRoot(ForkJoinPool.commonPool().invoke(task));
+        } else {
+            setRoot(task.compute());
+        }
+    }
+
+    private void clearAll() {
+        root = sentinel;
+        size = 0;
+        modCount++;
+    }
+
+    private void setRoot(Node<K, V> node) {
+        if (node != sentinel) {
+            node.color = BLACK;
+            node.parent = sentinel;
+        }
+        root = node;
+        size = node.size;
+        modCount++;
+    }
+
+    private int blackHeight(Node<K, V> node) {
+        /**
+         * @return the number of black nodes on a path from node down to a leaf,
+         *         the sentinel counting 0
+         */
+        int height = 0;
+        for (; node != sentinel; node = node.left) {
+            if (node.color == BLACK) {
+                height++;
+            }
+        }
+        return height;
+    }
+
+    private final class setTask extends RecursiveTask<Node<K, V>> {
+        /**
+         * combine t1 and t2, of black heights h1 and h2, by splitting t2 at the
+         * root key of t1; height is the black height of the result
+         */
+        private static final long serialVersionUID = 1L;
+
+        private final SetOperation op;
+        private final Node<K, V> t1, t2;
+        private final int h1, h2;
+        private int height;
+
+        setTask(SetOperation op, Node<K, V> t1, int h1, Node<K, V> t2, int h2) {
+            this.op = op;
+            this.t1 = t1;
+            this.h1 = h1;
+            this.t2 = t2;
+            this.h2 = h2;
+        }
+
+        @Override
+        protected Node<K, V> compute() {
+            if (t1 == sentinel) {
+                height = (op == SetOperation.UNION ? h2 : 0);
+                return (op == SetOperation.UNION ? t2 : sentinel);
+            }
+            if (t2 == sentinel) {
+                height = (op == SetOperation.INTERSECTION ? 0 : h1);
+                return (op == SetOperation.INTERSECTION ? sentinel : t1);
+            }
+            boolean parallel = (t1.size > PARALLEL_SIZE) && (t2.size > PARALLEL_SIZE);
+            joiner j = new joiner();
+            j.split(t2, h2, t1.key);
+            int childHeight = h1 - (t1.color == BLACK ? 1 : 0);
+            setTask left = new setTask(op, t1.left, childHeight, j.left, j.leftHeight);
+            setTask right = new setTask(op, t1.right, childHeight, j.right, j.rightHeight);
+            Node<K, V> l, r;
+            if (parallel) {
+                left.fork();
+                r = right.compute();
+                l = left.join();
+            } else {
+                l = left.compute();
+                r = right.compute();
+            }
+            if ((op == SetOperation.UNION) && (j.found != null)) {
+                t1.value = j.found.value;
+            }
+            boolean keep = (op == SetOperation.UNION) || ((j.found != null) == (op == SetOperation.INTERSECTION));
+            Node<K, V> joined = (keep ? j.join(l, left.height, t1, r, right.height)
+                    : j.join2(l, left.height, r, right.height));
+            height = j.height;
+            return joined;
+        }
+    }
+
+    private final class joiner {
+        /**
+         * join and split on detached subtrees, without touching root, size or
+         * modCount, so tasks may run them on disjoint subtrees in parallel. Trees
+         * come with their black heights; join leaves the black height of its
+         * result in height, split its three parts in left, found and right.
+         */
+        private int height;
+        private Node<K, V> left, found, right;
+        private int leftHeight, rightHeight;
+
+        private Node<K, V> link(Node<K, V> l, Node<K, V> node, Node<K, V> r, boolean color) {
+            node.left = l;
+            node.right = r;
+            node.parent = sentinel;
+            node.color = color;
+            if (l != sentinel) {
+                l.parent = node;
+            }
+            if (r != sentinel) {
+                r.parent = node;
+            }
+            node.size = l.size + r.size + 1;
+            return node;
+        }
+
+        private Node<K, V> rotateLeft(Node<K, V> node) {
+            Node<K, V> y = node.right;
+            return link(link(node.left, node, y.left, node.color), y, y.right, y.color);
+        }
+
+        private Node<K, V> rotateRight(Node<K, V> node) {
+            Node<K, V> x = node.left;
+            return link(x.left, x, link(x.right, node, node.right, node.color), x.color);
+        }
+
+        Node<K, V> join(Node<K, V> l, int hl, Node<K, V> node, Node<K, V> r, int hr) {
+            /**
+             * @return the tree of l, node and r, every key of l less than node's and
+             *         every key of r greater
+             */
+            // a black root keeps the tree valid, and leaves only red nodes to fix
+            if ((l != sentinel) && (l.color == RED)) {
+                l.color = BLACK;
+                hl++;
+            }
+            if ((r != sentinel) && (r.color == RED)) {
+                r.color = BLACK;
+                hr++;
+            }
+            if (hl > hr) {
+                Node<K, V> t = joinRight(l, hl, node, r, hr);
+                height = hl;
+                if ((t.color == RED) && (t.right.color == RED)) {
+                    t.color = BLACK;
+                    height++;
+                }
+                return t;
+            }
+            if (hr > hl) {
+                Node<K, V> t = joinLeft(l, hl, node, r, hr);
+                height = hr;
+                if ((t.color == RED) && (t.left.color == RED)) {
+                    t.color = BLACK;
+                    height++;
+                }
+                return t;
+            }
+            height = hl;
+            return link(l, node, r, RED);
+        }
+
+        private Node<K, V> joinRight(Node<K, V> l, int hl, Node<K, V> node, Node<K, V> r, int hr) {
+            // descend the right spine of l to a black node of r's black height
+            if ((l.color == BLACK) && (hl == hr)) {
+                return link(l, node, r, RED);
+            }
+            Node<K, V> t = link(l.left, l, joinRight(l.right, hl - (l.color == BLACK ? 1 : 0), node, r, hr), l.color);
+            if ((t.color == BLACK) && (t.right.color == RED) && (t.right.right.color == RED)) {
+                t.right.right.color = BLACK;
+                return rotateLeft(t);
+            }
+            return t;
+        }
+
+        private Node<K, V> joinLeft(Node<K, V> l, int hl, Node<K, V> node, Node<K, V> r, int hr) {
+            // mirror image of joinRight
+            if ((r.color == BLACK) && (hr == hl)) {
+                return link(l, node, r, RED);
+            }
+            Node<K, V> t = link(joinLeft(l, hl, node, r.left, hr - (r.color == BLACK ? 1 : 0)), r, r.right, r.color);
+            if ((t.color == BLACK) && (t.left.color == RED) && (t.left.left.color == RED)) {
+                t.left.left.color = BLACK;
+                return rotateRight(t);
+            }
+            return t;
+        }
+
+        Node<K, V> join2(Node<K, V> l, int hl, Node<K, V> r, int hr) {
+            /**
+             * @return the tree of l and r, every key of l less than every key of r
+             */
+            if (l == sentinel) {
+                height = hr;
+                return r;
+            }
+            Node<K, V> rest = removeLast(l, hl);
+            return join(rest, height, found, r, hr);
+        }
+
+        private Node<K, V> removeLast(Node<K, V> t, int ht) {
+            // the maximum goes to found, height is the black height of the rest
+            int childHeight = ht - (t.color == BLACK ? 1 : 0);
+            if (t.right == sentinel) {
+                found = t;
+                height = childHeight;
+                return t.left;
+            }
+            Node<K, V> rest = removeLast(t.right, childHeight);
+            return join(t.left, childHeight, t, rest, height);
+        }
+
+        void split(Node<K, V> t, int ht, K key) {
+            if (t == sentinel) {
+                left = right = sentinel;
+                found = null;
+                leftHeight = rightHeight = 0;
+                return;
+            }
+            Node<K, V> l = t.left, r = t.right;
+            int childHeight = ht - (t.color == BLACK ? 1 : 0);
+            int cmp = key.compareTo(t.key);
+            if (cmp == 0) {
+                left = l;
+                leftHeight = childHeight;
+                found = t;
+                right = r;
+                rightHeight = childHeight;
+            } else if (cmp < 0) {
+                split(l, childHeight, key);
+                right = join(right, rightHeight, t, r, childHeight);
+                rightHeight = height;
+            } else {
+                split(r, childHeight, key);
+                left = join(l, childHeight, t, left, leftHeight);
+                leftHeight = height;
+            }
+        }
+    }
+
+    /**
+     * @return the entry with the i-th smallest key, counting from 0
+     */
+    public Entry<K, V> select(int i) throws IndexOutOfBoundsException {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Illegal index: " + i);
+        }
+        return selectNode(i);
+    }
+
+    private Node<K, V> selectNode(int i) {
+        Node<K, V> node = root;
+        while (true) {
+            int leftSize = node.left.size;
+            if (i < leftSize) {
+                node = node.left;
+            } else if (i > leftSize) {
+                i -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+    }
+
+    /**
+     * @return the number of keys strictly less than key
+     */
+    public int rank(K key) {
+        int rank = 0;
+        Node<K, V> node = root;
+        while (node != sentinel) {
+            int cmp = key.compareTo(node.key);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                rank += node.left.size + 1;
+                node = node.right;
+            } else {
+                return rank + node.left.size;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @return the number of keys greater than or equal to fromKey, but strictly
+     *         less than toKey
+     */
+    public int countRange(K fromKey, K toKey) {
+        if (fromKey.compareTo(toKey) >= 0) {
+            return 0;
+        }
+        return rank(toKey) - rank(fromKey);
+    }
+
+    private Node<K, V> maximum(Node<K, V> node) {
+        while (node.right != sentinel) {
+            node = node.right;
+        }
+        return node;
+    }
+
+    private Node<K, V> successor(Node<K, V> node) {
+        /**
+         * @return the node with the least key greater than node's, or sentinel
+         */
+        if (node.right != sentinel) {
+            return minimum(node.right);
+        }
+        Node<K, V> p = node.parent;
+        while ((p != sentinel) && (node == p.right)) {
+            node = p;
+            p = p.parent;
+        }
+        return p;
+    }
+
+    private Node<K, V> ceilingNode(K key, boolean inclusive) {
+        /**
+         * @return the node with the least key greater than (or equal to, if
+         *         inclusive) key, or sentinel
+         */
+        Node<K, V> node = root, candidate = sentinel;
+        while (node != sentinel) {
+            int cmp = key.compareTo(node.key);
+            if ((cmp < 0) || (inclusive && cmp == 0)) {
+                candidate = node;
+                if (cmp == 0) {
+                    break;
+                }
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return candidate;
+    }
+
+    private Node<K, V> floorNode(K key, boolean inclusive) {
+        /**
+         * @return the node with the greatest key less than (or equal to, if
+         *         inclusive) key, or sentinel
+         */
+        Node<K, V> node = root, candidate = sentinel;
+        while (node != sentinel) {
+            int cmp = key.compareTo(node.key);
+            if ((cmp > 0) || (inclusive && cmp == 0)) {
+                candidate = node;
+                if (cmp == 0) {
+                    break;
+                }
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return candidate;
+    }
+
+    private Entry<K, V> entryOrNull(Node<K, V> node) {
+        return (node == sentinel ? null : node);
+    }
+
     @Override
     public Iterable<K> keySet() {
-        // TODO Auto-generated method stub
-        return null;
+        return () -> new keyIterator();
     }
 
     @Override
     public Iterable<V> valueSet() {
-        // TODO Auto-generated method stub
-        return null;
+        return () -> new valueIterator();
     }
 
     @Override
     public Iterable<Entry<K, V>> entrySet() {
-        // TODO Auto-generated method stub
-        return null;
+        return () -> new entryIterator((root == sentinel ? sentinel : minimum(root)), null);
     }
 
     @Override
     public Entry<K, V> firstEntry() {
-        // TODO Auto-generated method stub
-        return null;
+        return (root == sentinel ? null : minimum(root));
     }
 
     @Override
     public Entry<K, V> lastEntry() {
-        // TODO Auto-generated method stub
-        return null;
+        return (root == sentinel ? null : maximum(root));
     }
 
     @Override
     public Entry<K, V> ceilingEntry(K key) {
-        // TODO Auto-generated method stub
-        return null;
+        return entryOrNull(ceilingNode(key, true));
     }
 
     @Override
     public Entry<K, V> floorEntry(K key) {
-        // TODO Auto-generated method stub
-        return null;
+        return entryOrNull(floorNode(key, true));
     }
 
     @Override
     public Entry<K, V> lowerEntry(K key) {
-        // TODO Auto-generated method stub
-        return null;
+        return entryOrNull(floorNode(key, false));
     }
 
     @Override
     public Entry<K, V> higherEntry(K key) {
-        // TODO Auto-generated method stub
-        return null;
+        return entryOrNull(ceilingNode(key, false));
     }
 
     @Override
     public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) {
-        // TODO Auto-generated method stub
-        return null;
+        /**
+         * @return a view of all entries with key greater than or equal to fromKey, but
+         *         strictly less than toKey
+         */
+        // check invalid arguments
+        if (fromKey.compareTo(toKey) >= 0) {
+            return null;
+        }
+        return () -> new entryIterator(ceilingNode(fromKey, true), toKey);
+    }
+
+    /**
+     * @return a spliterator over the entries in key order, splitting by rank
+     */
+    public Spliterator<Entry<K, V>> spliterator() {
+        return new entrySpliterator(0, size, modCount);
+    }
+
+    /**
+     * @return a spliterator over the entries with key greater than or equal to
+     *         fromKey, but strictly less than toKey
+     */
+    public Spliterator<Entry<K, V>> spliterator(K fromKey, K toKey) {
+        int lo = rank(fromKey);
+        return new entrySpliterator(lo, Math.max(lo, rank(toKey)), modCount);
+    }
+
+    /**
+     * parallel bulk operations, see ParallelBulk for parallelismThreshold; the
+     * tree must not be modified while they run
+     */
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        ParallelBulk.forEach(spliterator(), parallelismThreshold, e -> action.accept(e.getKey(), e.getValue()));
+    }
+
+    public void forEach(long parallelismThreshold, K fromKey, K toKey, BiConsumer<? super K, ? super V> action) {
+        ParallelBulk.forEach(spliterator(fromKey, toKey), parallelismThreshold,
+                e -> action.accept(e.getKey(), e.getValue()));
+    }
+
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        return ParallelBulk.reduce(spliterator(), parallelismThreshold,
+                e -> transformer.apply(e.getKey(), e.getValue()), reducer);
+    }
+
+    public <U> U reduce(long parallelismThreshold, K fromKey, K toKey,
+            BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        return ParallelBulk.reduce(spliterator(fromKey, toKey), parallelismThreshold,
+                e -> transformer.apply(e.getKey(), e.getValue()), reducer);
+    }
+
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        return ParallelBulk.search(spliterator(), parallelismThreshold,
+                e -> searchFunction.apply(e.getKey(), e.getValue()));
+    }
+
+    public <U> U search(long parallelismThreshold, K fromKey, K toKey,
+            BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        return ParallelBulk.search(spliterator(fromKey, toKey), parallelismThreshold,
+                e -> searchFunction.apply(e.getKey(), e.getValue()));
+    }
+
+    private final class entrySpliterator implements Spliterator<Entry<K, V>> {
+        /**
+         * entries of rank lo (inclusive) to hi (exclusive). trySplit hands out the
+         * lower half by rank, located with the subtree sizes in O(log n), so the
+         * halves are exact and the sizes known at every level
+         */
+        private int lo, hi;
+        private Node<K, V> next; // node of rank lo, null until located
+        private final int expectedModCount;
+
+        entrySpliterator(int lo, int hi, int expectedModCount) {
+            this.lo = lo;
+            this.hi = hi;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<K, V>> action) {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (lo >= hi) {
+                return false;
+            }
+            Node<K, V> node = (next != null ? next : selectNode(lo));
+            lo++;
+            next = (lo < hi ? successor(node) : null);
+            action.accept(node);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Entry<K, V>> action) {
+            while (tryAdvance(action)) {
+                // advance to hi
+            }
+        }
+
+        @Override
+        public Spliterator<Entry<K, V>> trySplit() {
+            int mid = (lo + hi) >>> 1;
+            if (mid <= lo) {
+                return null;
+            }
+            entrySpliterator prefix = new entrySpliterator(lo, mid, expectedModCount);
+            prefix.next = next;
+            lo = mid;
+            next = null;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return hi - lo;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+        }
+
+        @Override
+        public Comparator<? super Entry<K, V>> getComparator() {
+            return (a, b) -> a.getKey().compareTo(b.getKey());
+        }
+    }
+
+    private abstract class nodeIterator {
+        /**
+         * in-order cursor following parent pointers, O(1) extra memory, up to
+         * toKey (exclusive, null for no bound)
+         */
+        private Node<K, V> next;
+        private final K toKey;
+        private final int expectedModCount = modCount;
+
+        nodeIterator(Node<K, V> first, K toKey) {
+            this.toKey = toKey;
+            this.next = bounded(first);
+        }
+
+        private Node<K, V> bounded(Node<K, V> node) {
+            if ((node == sentinel) || ((toKey != null) && (node.key.compareTo(toKey) >= 0))) {
+                return sentinel;
+            }
+            return node;
+        }
+
+        public boolean hasNext() {
+            return (next != sentinel);
+        }
+
+        protected Node<K, V> nextNode() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == sentinel) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = next;
+            next = bounded(successor(node));
+            return node;
+        }
+    }
+
+    private class entryIterator extends nodeIterator implements Iterator<Entry<K, V>> {
+        entryIterator(Node<K, V> first, K toKey) {
+            super(first, toKey);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            return nextNode();
+        }
+    }
+
+    private class keyIterator extends nodeIterator implements Iterator<K> {
+        keyIterator() {
+            super((root == sentinel ? sentinel : minimum(root)), null);
+        }
+
+        @Override
+        public K next() {
+            return nextNode().key;
+        }
+    }
+
+    private class valueIterator extends nodeIterator implements Iterator<V> {
+        valueIterator() {
+            super((root == sentinel ? sentinel : minimum(root)), null);
+        }
+
+        @Override
+        public V next() {
+            return nextNode().value;
+        }
     }
 }
@@ -0,0 +1,58 @@
+package bst;
+
+import java.util.Iterator;
+
+final class SortedInput<K extends Comparable<K>, V> {
+    /**
+     * cursor over the input of a bulk build, entries from an iterator or from
+     * parallel key and value arrays, checking that keys strictly ascend
+     */
+
+    private final Iterator<? extends TreeMap.Entry<K, V>> it;
+    private final K[] keys;
+    private final V[] values;
+    private int index;
+
+    K key; // current entry, valid after next()
+    V value;
+
+    SortedInput(Iterator<? extends TreeMap.Entry<K, V>> it) {
+        this.it = it;
+        this.keys = null;
+        this.values = null;
+    }
+
+    SortedInput(K[] keys, V[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("keys and values differ in length");
+        }
+        this.it = null;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    static void checkSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Illegal size: " + size);
+        }
+    }
+
+    void next() {
+        K prev = key;
+        if (it != null) {
+            if (!it.hasNext()) {
+                throw new IllegalArgumentException("fewer entries than size");
+            }
+            TreeMap.Entry<K, V> entry = it.next();
+            key = entry.getKey();
+            value = entry.getValue();
+        } else {
+            key = keys[index];
+            value = values[index];
+        }
+        index++;
+        if ((index > 1) && (prev.compareTo(key) >= 0)) {
+            throw new IllegalArgumentException("keys are not in strictly ascending order");
+        }
+    }
+}
@@ -8,10 +8,19 @@
  */
 package bst;
 
-public class SplayTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import metrics.Instrumented;
+import metrics.MetricsRecorder;
+import metrics.StructureMetrics;
+
+public class SplayTree<K extends Comparable<K>, V> implements SortedMap<K, V>, Instrumented {
     private Node<K, V> root;
     private int size;
-    protected int cmpCount;
+    private int modCount; // restructurings including splays, for fail-fast iterators
+    private MetricsRecorder metrics; // null unless enabled
     private final Node<K, V> header; // for splay
 
     public SplayTree() {
@@ -45,24 +54,27 @@ public class SplayTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
          */
         Node<K, V> l = header, r = header;
         Node<K, V> temp = null;
+        int cmps = 0, rotations = 0;
+        modCount++;
         while (true) {
+            cmps++;
             int cmp = key.compareTo(node.key);
             if (cmp < 0) {
                 if (node.left == null) {
                     break;
                 }
-                cmpCount++;
+                cmps++;
                 if (key.compareTo(node.left.key) < 0) {
                     // zig-zig, rotate right
                     temp = node.left;
                     node.left = temp.right;
                     temp.right = node;
                     node = temp;
+                    rotations++;
                     if (node.left == null) {
                         break;
                     }
                 }
-                cmpCount++;
                 // link right
                 r.left = node;
                 r = node;
@@ -71,18 +83,18 @@ public class SplayTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
                 if (node.right == null) {
                     break;
                 }
-                cmpCount++;
+                cmps++;
                 if (key.compareTo(node.right.key) > 0) {
                     // zig-zig, rotate left
                     temp = node.right;
                     node.right = temp.left;
                     temp.left = node;
                     node = temp;
+                    rotations++;
                     if (node.right == null) {
                         break;
                     }
                 }
-                cmpCount++;
                 // link left
                 l.right = node;
                 l = node;
@@ -90,7 +102,11 @@ public class SplayTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
             } else {
                 break;
             }
-            cmpCount++;
+        }
+        if (metrics != null) {
+            metrics.splay();
+            metrics.compare(cmps);
+            metrics.rotate(rotations);
         }
         // assemble
         r.left = node.right;
@@ -105,6 +121,9 @@ public class SplayTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
             return null;
         }
         splay(key, root);
+        if (metrics != null) {
+            metrics.compare(1);
+        }
         if (key.compareTo(root.key) == 0) {
             return root.value;
         }
@@ -116,12 +135,15 @@ public class SplayTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
         if (root == null) {
             root = new Node<>(key, value);
             size++;
+            modCount++;
             return value;
         }
         // top-down splay, and search for key
         splay(key, root);
         int cmp = key.compareTo(root.key);
-        cmpCount++;
+        if (metrics != null) {
+            metrics.compare(1);
+        }
         // update existed node
         if (cmp == 0) {
             V oldValue = root.value;
@@ -151,7 +173,9 @@ public class SplayTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
         }
         // top-down splay, and search for key
         splay(key, root);
-        cmpCount++;
+        if (metrics != null) {
+            metrics.compare(1);
+        }
         if (key.compareTo(root.key) != 0) {
             return null;
         }
@@ -164,7 +188,6 @@ public class SplayTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
             splay(key, root); // move the maximum node (rightmost) of left subtree to the root
             root.right = rightSubtree;
         }
-        cmpCount++;
         size--;
         return oldValue;
     }
@@ -173,6 +196,21 @@ public class SplayTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
         return size;
     }
 
+    @Override
+    public void setMetricsEnabled(boolean enabled) {
+        this.metrics = (enabled ? new MetricsRecorder() : null);
+    }
+
+    @Override
+    public boolean isMetricsEnabled() {
+        return (metrics != null);
+    }
+
+    @Override
+    public StructureMetrics getMetrics() {
+        return metrics;
+    }
+
     private int dfs(Node<K, V> node, int depth) {
         if (node == null) {
             return depth;
@@ -191,67 +229,219 @@ public class SplayTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
 
     @Override
     public boolean containsKey(K key) {
-        // TODO Auto-generated method stub
-        return false;
+        // splays like get, so a key tested for is cheap to fetch next
+        if (root == null) {
+            return false;
+        }
+        splay(key, root);
+        if (metrics != null) {
+            metrics.compare(1);
+        }
+        return (key.compareTo(root.key) == 0);
     }
 
     @Override
     public Iterable<K> keySet() {
-        // TODO Auto-generated method stub
-        return null;
+        return () -> new keyIterator();
     }
 
     @Override
     public Iterable<V> valueSet() {
-        // TODO Auto-generated method stub
-        return null;
+        return () -> new valueIterator();
     }
 
     @Override
     public Iterable<Entry<K, V>> entrySet() {
-        // TODO Auto-generated method stub
-        return null;
+        return () -> new entryIterator(null, null);
     }
 
+    /** navigation and iteration, searching without splaying */
     @Override
     public Entry<K, V> firstEntry() {
-        // TODO Auto-generated method stub
-        return null;
+        Node<K, V> node = root;
+        while ((node != null) && (node.left != null)) {
+            node = node.left;
+        }
+        return node;
     }
 
     @Override
     public Entry<K, V> lastEntry() {
-        // TODO Auto-generated method stub
-        return null;
+        Node<K, V> node = root;
+        while ((node != null) && (node.right != null)) {
+            node = node.right;
+        }
+        return node;
     }
 
     @Override
     public Entry<K, V> ceilingEntry(K key) {
-        // TODO Auto-generated method stub
-        return null;
+        return ceilingNode(key, true);
     }
 
     @Override
     public Entry<K, V> floorEntry(K key) {
-        // TODO Auto-generated method stub
-        return null;
+        return floorNode(key, true);
     }
 
     @Override
     public Entry<K, V> lowerEntry(K key) {
-        // TODO Auto-generated method stub
-        return null;
+        return floorNode(key, false);
     }
 
     @Override
     public Entry<K, V> higherEntry(K key) {
-        // TODO Auto-generated method stub
-        return null;
+        return ceilingNode(key, false);
+    }
+
+    private Node<K, V> ceilingNode(K key, boolean inclusive) {
+        /**
+         * @return the node with the least key greater than (or equal to, if
+         *         inclusive) key, or null
+         */
+        Node<K, V> node = root, candidate = null;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if ((cmp < 0) || (inclusive && cmp == 0)) {
+                candidate = node;
+                if (cmp == 0) {
+                    break;
+                }
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return candidate;
+    }
+
+    private Node<K, V> floorNode(K key, boolean inclusive) {
+        /**
+         * @return the node with the greatest key less than (or equal to, if
+         *         inclusive) key, or null
+         */
+        Node<K, V> node = root, candidate = null;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if ((cmp > 0) || (inclusive && cmp == 0)) {
+                candidate = node;
+                if (cmp == 0) {
+                    break;
+                }
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return candidate;
     }
 
     @Override
     public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) {
-        // TODO Auto-generated method stub
-        return null;
+        /**
+         * @return a view of all entries with key greater than or equal to fromKey, but
+         *         strictly less than toKey
+         */
+        // check invalid arguments
+        if (fromKey.compareTo(toKey) >= 0) {
+            return null;
+        }
+        return () -> new entryIterator(fromKey, toKey);
+    }
+
+    private abstract class nodeIterator {
+        /**
+         * in-order cursor over an explicit stack of the nodes whose left subtree
+         * is being visited, from fromKey (inclusive) up to toKey (exclusive),
+         * null for no bound; the stack holds one path, not the whole tree
+         */
+        @SuppressWarnings("unchecked")
+        private Node<K, V>[] stack = (Node<K, V>[]) new Node[16];
+        private int depth;
+        private final K toKey;
+        private final int expectedModCount = modCount;
+
+        nodeIterator(K fromKey, K toKey) {
+            this.toKey = toKey;
+            Node<K, V> node = root;
+            while (node != null) {
+                if ((fromKey == null) || (fromKey.compareTo(node.key) <= 0)) {
+                    push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+            bound();
+        }
+
+        private void push(Node<K, V> node) {
+            if (depth == stack.length) {
+                @SuppressWarnings("unchecked")
+                Node<K, V>[] temp = (Node<K, V>[]) new Node[2 * depth];
+                System.arraycopy(stack, 0, temp, 0, depth);
+                stack = temp;
+            }
+            stack[depth++] = node;
+        }
+
+        private void bound() {
+            if ((depth > 0) && (toKey != null) && (stack[depth - 1].key.compareTo(toKey) >= 0)) {
+                depth = 0;
+            }
+        }
+
+        public boolean hasNext() {
+            return (depth > 0);
+        }
+
+        protected Node<K, V> nextNode() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = stack[--depth];
+            stack[depth] = null;
+            for (Node<K, V> x = node.right; x != null; x = x.left) {
+                push(x);
+            }
+            bound();
+            return node;
+        }
+    }
+
+    private class entryIterator extends nodeIterator implements Iterator<Entry<K, V>> {
+        entryIterator(K fromKey, K toKey) {
+            super(fromKey, toKey);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            return nextNode();
+        }
+    }
+
+    private class keyIterator extends nodeIterator implements Iterator<K> {
+        keyIterator() {
+            super(null, null);
+        }
+
+        @Override
+        public K next() {
+            return nextNode().key;
+        }
+    }
+
+    private class valueIterator extends nodeIterator implements Iterator<V> {
+        valueIterator() {
+            super(null, null);
+        }
+
+        @Override
+        public V next() {
+            return nextNode().value;
+        }
     }
 }
@@ -0,0 +1,480 @@
+package bst;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class TopDownRedBlackTree<K extends Comparable<K>, V> implements SortedMap<K, V> {
+    /**
+     * red-black tree without parent pointers or sentinel, balanced in a single
+     * downward pass
+     *
+     * insert splits every node with two red children on the way down (a color
+     * flip), so the new red leaf can only clash with a red parent, which one
+     * or two rotations at the grandparent fix on the spot. delete pushes a red
+     * node down in front of it instead, so the node finally unlinked is red;
+     * the key and value of that node, the predecessor of the key removed, are
+     * moved into the node that held the key. Neither walks back up, and the
+     * path is held in four local references rather than in every node.
+     *
+     * a node is key, value, two children and a color: 32 bytes with compressed
+     * oops, against 48 for a RedBlackTree node (parent pointer, subtree size
+     * and the reference to the enclosing tree).
+     */
+
+    private Node<K, V> root;
+    private int size;
+    private int modCount; // structural changes, for fail-fast iterators
+    private final Node<K, V> head = new Node<>(null, null); // fake root, root is head.right during a pass
+
+    private static final class Node<K, V> implements TreeMap.Entry<K, V> {
+        K key;
+        V value;
+        Node<K, V> left, right;
+        boolean red;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+            this.red = true;
+        }
+
+        Node<K, V> child(boolean right) {
+            return (right ? this.right : this.left);
+        }
+
+        void setChild(boolean right, Node<K, V> node) {
+            if (right) {
+                this.right = node;
+            } else {
+                this.left = node;
+            }
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+    }
+
+    private static final class SnapshotEntry<K, V> implements TreeMap.Entry<K, V> {
+        /**
+         * navigation results are copies, a remove may move another key into a node
+         */
+        private final K key;
+        private final V value;
+
+        SnapshotEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+    }
+
+    /** top-down red-black tree operations */
+    private static boolean isRed(Node<?, ?> node) {
+        return ((node != null) && node.red);
+    }
+
+    private static <K, V> Node<K, V> rotate(Node<K, V> node, boolean right) {
+        /**
+         * single rotation towards right (or left), the new subtree root turns
+         * black and node red
+         *
+         * @return the new subtree root
+         */
+        Node<K, V> save = node.child(!right);
+        node.setChild(!right, save.child(right));
+        save.setChild(right, node);
+        node.red = true;
+        save.red = false;
+        return save;
+    }
+
+    private static <K, V> Node<K, V> rotateTwice(Node<K, V> node, boolean right) {
+        node.setChild(!right, rotate(node.child(!right), !right));
+        return rotate(node, right);
+    }
+
+    public V get(K key) {
+        Node<K, V> node = search(key);
+        return (node == null ? null : node.value);
+    }
+
+    private Node<K, V> search(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    public V put(K key, V value) {
+        // empty tree
+        if (root == null) {
+            root = new Node<>(key, value);
+            root.red = false;
+            size++;
+            modCount++;
+            return value;
+        }
+        // t, g, p and q: great-grandparent, grandparent, parent and current node
+        Node<K, V> t = head, g = null, p = null, q = root;
+        head.right = root;
+        boolean dir = false, last = false;
+        boolean inserted = false;
+        while (true) {
+            if (q == null) {
+                // insert new node at the bottom
+                q = new Node<>(key, value);
+                p.setChild(dir, q);
+                inserted = true;
+            } else if (isRed(q.left) && isRed(q.right)) {
+                // color flip, q keeps the black height of both children
+                q.red = true;
+                q.left.red = false;
+                q.right.red = false;
+            }
+            // fix a red-red pair of p and q at the grandparent
+            if (isRed(q) && isRed(p)) {
+                boolean dir2 = (t.right == g);
+                if (q == p.child(last)) {
+                    t.setChild(dir2, rotate(g, !last));
+                } else {
+                    t.setChild(dir2, rotateTwice(g, !last));
+                }
+            }
+            int cmp = (inserted ? 0 : key.compareTo(q.key));
+            if (cmp == 0) {
+                break;
+            }
+            last = dir;
+            dir = (cmp > 0);
+            if (g != null) {
+                t = g;
+            }
+            g = p;
+            p = q;
+            q = q.child(dir);
+        }
+        root = head.right;
+        root.red = false;
+        head.right = null;
+        if (inserted) {
+            size++;
+            modCount++;
+            return value;
+        }
+        // update existed node, the rotations above kept q's entry
+        V oldValue = q.value;
+        q.key = key;
+        q.value = value;
+        return oldValue;
+    }
+
+    public V remove(K key) {
+        if (root == null) {
+            return null;
+        }
+        // g, p and q: grandparent, parent and current node, found holds key
+        Node<K, V> g = null, p = null, q = head, found = null;
+        head.right = root;
+        boolean dir = true;
+        while (q.child(dir) != null) {
+            boolean last = dir;
+            g = p;
+            p = q;
+            q = q.child(dir);
+            int cmp = key.compareTo(q.key);
+            dir = (cmp > 0);
+            if (cmp == 0) {
+                found = q; // go on to its predecessor
+            }
+            // push a red node down
+            if (!isRed(q) && !isRed(q.child(dir))) {
+                if (isRed(q.child(!dir))) {
+                    Node<K, V> r = rotate(q, dir);
+                    p.setChild(last, r);
+                    p = r;
+                } else {
+                    Node<K, V> s = p.child(!last); // sibling of q
+                    if (s != null) {
+                        if (!isRed(s.child(!last)) && !isRed(s.child(last))) {
+                            // color flip
+                            p.red = false;
+                            s.red = true;
+                            q.red = true;
+                        } else {
+                            boolean dir2 = (g.right == p);
+                            if (isRed(s.child(last))) {
+                                g.setChild(dir2, rotateTwice(p, last));
+                            } else {
+                                g.setChild(dir2, rotate(p, last));
+                            }
+                            // q red, the new subtree root red with black children
+                            Node<K, V> top = g.child(dir2);
+                            q.red = true;
+                            top.red = true;
+                            top.left.red = false;
+                            top.right.red = false;
+                        }
+                    }
+                }
+            }
+        }
+        V oldValue = null;
+        if (found != null) {
+            oldValue = found.value;
+            // q is the predecessor of found, or found itself, and red or the root
+            found.key = q.key;
+            found.value = q.value;
+            p.setChild(p.right == q, q.child(q.left == null));
+            size--;
+            modCount++;
+        }
+        root = head.right;
+        if (root != null) {
+            root.red = false;
+        }
+        head.right = null;
+        return oldValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return (search(key) != null);
+    }
+
+    private Node<K, V> ceilingNode(K key, boolean inclusive) {
+        /**
+         * @return the node with the least key greater than (or equal to, if
+         *         inclusive) key, or null
+         */
+        Node<K, V> node = root, candidate = null;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if ((cmp < 0) || (inclusive && cmp == 0)) {
+                candidate = node;
+                if (cmp == 0) {
+                    break;
+                }
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return candidate;
+    }
+
+    private Node<K, V> floorNode(K key, boolean inclusive) {
+        /**
+         * @return the node with the greatest key less than (or equal to, if
+         *         inclusive) key, or null
+         */
+        Node<K, V> node = root, candidate = null;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if ((cmp > 0) || (inclusive && cmp == 0)) {
+                candidate = node;
+                if (cmp == 0) {
+                    break;
+                }
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return candidate;
+    }
+
+    private Entry<K, V> snapshot(Node<K, V> node) {
+        return (node == null ? null : new SnapshotEntry<>(node.key, node.value));
+    }
+
+    @Override
+    public Entry<K, V> firstEntry() {
+        Node<K, V> node = root;
+        while ((node != null) && (node.left != null)) {
+            node = node.left;
+        }
+        return snapshot(node);
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+        Node<K, V> node = root;
+        while ((node != null) && (node.right != null)) {
+            node = node.right;
+        }
+        return snapshot(node);
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+        return snapshot(ceilingNode(key, true));
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+        return snapshot(floorNode(key, true));
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+        return snapshot(floorNode(key, false));
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+        return snapshot(ceilingNode(key, false));
+    }
+
+    @Override
+    public Iterable<K> keySet() {
+        return () -> new keyIterator();
+    }
+
+    @Override
+    public Iterable<V> valueSet() {
+        return () -> new valueIterator();
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return () -> new entryIterator(null, null);
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) {
+        /**
+         * @return a view of all entries with key greater than or equal to fromKey, but
+         *         strictly less than toKey
+         */
+        // check invalid arguments
+        if (fromKey.compareTo(toKey) >= 0) {
+            return null;
+        }
+        return () -> new entryIterator(fromKey, toKey);
+    }
+
+    private abstract class nodeIterator {
+        /**
+         * in-order cursor over an explicit stack of the nodes whose left subtree
+         * is being visited, from fromKey (inclusive) up to toKey (exclusive),
+         * null for no bound; a red-black tree is at most 2 log n high
+         */
+        @SuppressWarnings("unchecked")
+        private Node<K, V>[] stack = (Node<K, V>[]) new Node[16];
+        private int depth;
+        private final K toKey;
+        private final int expectedModCount = modCount;
+
+        nodeIterator(K fromKey, K toKey) {
+            this.toKey = toKey;
+            Node<K, V> node = root;
+            while (node != null) {
+                if ((fromKey == null) || (fromKey.compareTo(node.key) <= 0)) {
+                    push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+            bound();
+        }
+
+        private void push(Node<K, V> node) {
+            if (depth == stack.length) {
+                @SuppressWarnings("unchecked")
+                Node<K, V>[] temp = (Node<K, V>[]) new Node[2 * depth];
+                System.arraycopy(stack, 0, temp, 0, depth);
+                stack = temp;
+            }
+            stack[depth++] = node;
+        }
+
+        private void bound() {
+            if ((depth > 0) && (toKey != null) && (stack[depth - 1].key.compareTo(toKey) >= 0)) {
+                depth = 0;
+            }
+        }
+
+        public boolean hasNext() {
+            return (depth > 0);
+        }
+
+        protected Node<K, V> nextNode() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = stack[--depth];
+            stack[depth] = null;
+            for (Node<K, V> x = node.right; x != null; x = x.left) {
+                push(x);
+            }
+            bound();
+            return node;
+        }
+    }
+
+    private class entryIterator extends nodeIterator implements Iterator<Entry<K, V>> {
+        entryIterator(K fromKey, K toKey) {
+            super(fromKey, toKey);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            return nextNode();
+        }
+    }
+
+    private class keyIterator extends nodeIterator implements Iterator<K> {
+        keyIterator() {
+            super(null, null);
+        }
+
+        @Override
+        public K next() {
+            return nextNode().key;
+        }
+    }
+
+    private class valueIterator extends nodeIterator implements Iterator<V> {
+        valueIterator() {
+            super(null, null);
+        }
+
+        @Override
+        public V next() {
+            return nextNode().value;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package list;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 public class ArrayList<E> implements List<E>, Iterable<E> {
     /**
@@ -60,24 +64,77 @@ public class ArrayList<E> implements List<E>, Iterable<E> {
     }
 
     public void resize(int capacity) {
+        if (capacity < size) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
         Object[] temp = new Object[capacity];
-        System.arraycopy(elementData, 0, temp, 0, elementData.length);
+        System.arraycopy(elementData, 0, temp, 0, size);
         elementData = temp;
     }
 
+    /**
+     * grows the array, doubling as add does, until it holds minCapacity
+     * elements
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elementData.length) {
+            resize(Math.max(Math.max(elementData.length * 2, minCapacity), CAPACITY));
+        }
+    }
+
+    /**
+     * shrinks the array to size
+     */
+    public void trimToSize() {
+        if (size < elementData.length) {
+            resize(size);
+        }
+    }
+
     @Override
     public void add(int i, E e) throws IndexOutOfBoundsException {
         checkPositionIndex(i);
-        if (size == elementData.length) {
-            resize(elementData.length * 2);
-        }
-        for (int k = size - 1; k >= i; k--) {
-            elementData[k + 1] = elementData[k];
-        }
+        ensureCapacity(size + 1);
+        System.arraycopy(elementData, i, elementData, i + 1, size - i);
         elementData[i] = e;
         size++;
     }
 
+    /**
+     * inserts the elements of c at i, in iteration order, shifting the tail
+     * once for all of them
+     */
+    public void addAll(int i, Collection<? extends E> c) throws IndexOutOfBoundsException {
+        checkPositionIndex(i);
+        Object[] a = c.toArray();
+        insert(i, a, a.length);
+    }
+
+    public void addAll(Collection<? extends E> c) {
+        addAll(size, c);
+    }
+
+    /**
+     * inserts the elements of list at i, list may be this
+     */
+    public void addAll(int i, ArrayList<? extends E> list) throws IndexOutOfBoundsException {
+        checkPositionIndex(i);
+        // the shift would overwrite the source if it is this list
+        Object[] a = (list == this ? toArray() : list.elementData);
+        insert(i, a, list.size);
+    }
+
+    public void addAll(ArrayList<? extends E> list) {
+        addAll(size, list);
+    }
+
+    private void insert(int i, Object[] a, int n) {
+        ensureCapacity(size + n);
+        System.arraycopy(elementData, i, elementData, i + n, size - i);
+        System.arraycopy(a, 0, elementData, i, n);
+        size += n;
+    }
+
     public void add(E e) {
         add(size, e);
     }
@@ -95,14 +152,55 @@ public class ArrayList<E> implements List<E>, Iterable<E> {
         checkElementIndex(i);
         @SuppressWarnings("unchecked")
         final E temp = (E) elementData[i];
-        for (int k = i; k < size - 1; k++) {
-            elementData[k] = elementData[k + 1];
-        }
+        System.arraycopy(elementData, i + 1, elementData, i, size - i - 1);
         elementData[size - 1] = null;
         size--;
         return temp;
     }
 
+    /**
+     * removes the elements from index from (inclusive) to to (exclusive)
+     */
+    public void removeRange(int from, int to) throws IndexOutOfBoundsException {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Illegal range: " + from + ", " + to);
+        }
+        System.arraycopy(elementData, to, elementData, from, size - to);
+        int newSize = size - (to - from);
+        Arrays.fill(elementData, newSize, size, null);
+        size = newSize;
+    }
+
+    /**
+     * removes every element that satisfies filter: every element is tested
+     * before any is moved, so a filter that throws leaves the list untouched,
+     * then the survivors are compacted in one pass
+     *
+     * @return true if any element was removed
+     */
+    public boolean removeIf(Predicate<? super E> filter) {
+        BitSet removed = new BitSet(size);
+        for (int k = 0; k < size; k++) {
+            @SuppressWarnings("unchecked")
+            final E e = (E) elementData[k];
+            if (filter.test(e)) {
+                removed.set(k);
+            }
+        }
+        if (removed.isEmpty()) {
+            return false;
+        }
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            if (!removed.get(k)) {
+                elementData[j++] = elementData[k];
+            }
+        }
+        Arrays.fill(elementData, j, size, null);
+        size = j;
+        return true;
+    }
+
     public E removeFirst() {
         return remove(0);
     }
@@ -118,6 +216,29 @@ public class ArrayList<E> implements List<E>, Iterable<E> {
         return temp;
     }
 
+    /**
+     * @return a copy of the elements, in order
+     */
+    public Object[] toArray() {
+        return Arrays.copyOf(elementData, size);
+    }
+
+    /**
+     * @return the elements in a, if it is large enough, or else in a new array
+     *         of the runtime type of a; as java.util.Collection.toArray(T[])
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if (a.length < size) {
+            return (T[]) Arrays.copyOf(elementData, size, a.getClass());
+        }
+        System.arraycopy(elementData, 0, a, 0, size);
+        if (a.length > size) {
+            a[size] = null;
+        }
+        return a;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,225 @@
+package list;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+public class DoubleArrayList {
+    /**
+     * dynamic array of primitive double, the operations of List without boxing
+     *
+     * elements live in a double[], 8 bytes each against a reference plus a 16
+     * byte Double in ArrayList, and get reads the array directly. Grows like
+     * ArrayList, doubling the array when it is full.
+     */
+
+    private static final int CAPACITY = 16;
+    private int size = 0;
+    private double[] elementData;
+
+    public DoubleArrayList() {
+        this(CAPACITY);
+    }
+
+    public DoubleArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        elementData = new double[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    private void checkElementIndex(int i) throws IndexOutOfBoundsException {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Illegal index: " + i);
+        }
+    }
+
+    private void checkPositionIndex(int i) throws IndexOutOfBoundsException {
+        if (i < 0 || i > size) {
+            throw new IndexOutOfBoundsException("Illegal index: " + i);
+        }
+    }
+
+    public double get(int i) throws IndexOutOfBoundsException {
+        checkElementIndex(i);
+        return elementData[i];
+    }
+
+    public double set(int i, double e) throws IndexOutOfBoundsException {
+        checkElementIndex(i);
+        double temp = elementData[i];
+        elementData[i] = e;
+        return temp;
+    }
+
+    public void resize(int capacity) {
+        if (capacity < size) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        double[] temp = new double[capacity];
+        System.arraycopy(elementData, 0, temp, 0, size);
+        elementData = temp;
+    }
+
+    private void ensureRoom(int n) {
+        // double until n more elements fit
+        if (size + n > elementData.length) {
+            int capacity = Math.max(elementData.length, 1);
+            while (capacity < size + n) {
+                capacity *= 2;
+            }
+            resize(capacity);
+        }
+    }
+
+    public void add(int i, double e) throws IndexOutOfBoundsException {
+        checkPositionIndex(i);
+        ensureRoom(1);
+        System.arraycopy(elementData, i, elementData, i + 1, size - i);
+        elementData[i] = e;
+        size++;
+    }
+
+    public void add(double e) {
+        ensureRoom(1);
+        elementData[size++] = e;
+    }
+
+    public void addFirst(double e) {
+        add(0, e);
+    }
+
+    public void addLast(double e) {
+        add(e);
+    }
+
+    public void addAll(int i, double[] a) throws IndexOutOfBoundsException {
+        checkPositionIndex(i);
+        insert(i, a, a.length);
+    }
+
+    public void addAll(double[] a) {
+        addAll(size, a);
+    }
+
+    /**
+     * inserts the elements of list at i, list may be this
+     */
+    public void addAll(int i, DoubleArrayList list) throws IndexOutOfBoundsException {
+        checkPositionIndex(i);
+        // the shift would overwrite the source if it is this list
+        double[] a = (list == this ? toArray() : list.elementData);
+        insert(i, a, list.size);
+    }
+
+    public void addAll(DoubleArrayList list) {
+        addAll(size, list);
+    }
+
+    private void insert(int i, double[] a, int n) {
+        ensureRoom(n);
+        System.arraycopy(elementData, i, elementData, i + n, size - i);
+        System.arraycopy(a, 0, elementData, i, n);
+        size += n;
+    }
+
+    public double remove(int i) throws IndexOutOfBoundsException {
+        checkElementIndex(i);
+        double temp = elementData[i];
+        System.arraycopy(elementData, i + 1, elementData, i, size - i - 1);
+        size--;
+        return temp;
+    }
+
+    public double removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return remove(0);
+    }
+
+    public double removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return elementData[--size];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return a copy of the elements, in order
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(elementData, size);
+    }
+
+    /**
+     * sorts the elements into ascending order, the total order of
+     * Double.compare: -0.0 before 0.0, NaN last
+     */
+    public void sort() {
+        Arrays.sort(elementData, 0, size);
+    }
+
+    /**
+     * @return the index of key in the sorted list, or (-(insertion point) - 1)
+     *         as Arrays.binarySearch
+     */
+    public int binarySearch(double key) {
+        return Arrays.binarySearch(elementData, 0, size, key);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.append(elementData[i]).append(" ");
+        }
+        return sb.toString();
+    }
+
+    public PrimitiveIterator.OfDouble iterator() {
+        return new listIterator();
+    }
+
+    private class listIterator implements PrimitiveIterator.OfDouble {
+        private int lastReturnedIndex = -1;
+        private int cursor;
+
+        @Override
+        public boolean hasNext() {
+            return (cursor < size);
+        }
+
+        @Override
+        public double nextDouble() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturnedIndex = cursor;
+            cursor++;
+            return elementData[lastReturnedIndex];
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturnedIndex < 0) {
+                throw new IllegalStateException();
+            }
+            DoubleArrayList.this.remove(lastReturnedIndex);
+            cursor = lastReturnedIndex;
+            lastReturnedIndex = -1;
+        }
+    }
+}
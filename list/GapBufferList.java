@@ -0,0 +1,209 @@
+package list;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class GapBufferList<E> implements List<E>, Iterable<E> {
+    /**
+     * gap buffer: one array whose free slots form a single gap at the last
+     * edit position
+     *
+     * elements [0, gapStart) sit before the gap, the rest after gapEnd. add
+     * and remove first move the gap to i, copying only the elements between
+     * the old and the new position, then take or give back one slot at its
+     * edge. Edits around a slowly moving cursor thus cost O(1) amortized
+     * plus the distance moved, where ArrayList shifts the whole tail; get
+     * and set stay O(1), one compare to pick the side of the gap. When the
+     * gap is used up the array doubles, as in ArrayList.resize.
+     */
+
+    private static final int CAPACITY = 16;
+    private Object[] elementData;
+    private int gapStart; // first free slot, the logical index the gap sits at
+    private int gapEnd; // first element after the gap
+
+    public GapBufferList() {
+        this(CAPACITY);
+    }
+
+    public GapBufferList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        elementData = new Object[capacity];
+        gapStart = 0;
+        gapEnd = capacity;
+    }
+
+    @Override
+    public int size() {
+        return elementData.length - (gapEnd - gapStart);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (size() == 0);
+    }
+
+    private void checkElementIndex(int i) throws IndexOutOfBoundsException {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Illegal index: " + i);
+        }
+    }
+
+    private void checkPositionIndex(int i) throws IndexOutOfBoundsException {
+        if (i < 0 || i > size()) {
+            throw new IndexOutOfBoundsException("Illegal index: " + i);
+        }
+    }
+
+    private int slot(int i) {
+        // physical slot of logical index i
+        return (i < gapStart ? i : i + (gapEnd - gapStart));
+    }
+
+    @Override
+    public E get(int i) throws IndexOutOfBoundsException {
+        checkElementIndex(i);
+        @SuppressWarnings("unchecked")
+        final E e = (E) elementData[slot(i)];
+        return e;
+    }
+
+    @Override
+    public E set(int i, E e) throws IndexOutOfBoundsException {
+        checkElementIndex(i);
+        int k = slot(i);
+        @SuppressWarnings("unchecked")
+        final E temp = (E) elementData[k];
+        elementData[k] = e;
+        return temp;
+    }
+
+    private void moveGap(int i) {
+        /**
+         * moves the gap to logical index i, copying the elements in between
+         * across it
+         */
+        if (i < gapStart) {
+            int n = gapStart - i;
+            System.arraycopy(elementData, i, elementData, gapEnd - n, n);
+            clear(i, Math.min(gapStart, gapEnd - n));
+            gapStart -= n;
+            gapEnd -= n;
+        } else if (i > gapStart) {
+            int n = i - gapStart;
+            System.arraycopy(elementData, gapEnd, elementData, gapStart, n);
+            clear(Math.max(gapEnd, gapStart + n), gapEnd + n);
+            gapStart += n;
+            gapEnd += n;
+        }
+    }
+
+    private void clear(int from, int to) {
+        // drop the references left behind in the gap
+        for (int k = from; k < to; k++) {
+            elementData[k] = null;
+        }
+    }
+
+    public void resize(int capacity) {
+        // keeps the gap at gapStart, grown or shrunk to the new capacity
+        int tail = elementData.length - gapEnd;
+        Object[] temp = new Object[capacity];
+        System.arraycopy(elementData, 0, temp, 0, gapStart);
+        System.arraycopy(elementData, gapEnd, temp, capacity - tail, tail);
+        elementData = temp;
+        gapEnd = capacity - tail;
+    }
+
+    @Override
+    public void add(int i, E e) throws IndexOutOfBoundsException {
+        checkPositionIndex(i);
+        if (gapStart == gapEnd) {
+            resize(Math.max(elementData.length * 2, CAPACITY));
+        }
+        moveGap(i);
+        elementData[gapStart++] = e;
+    }
+
+    public void add(E e) {
+        add(size(), e);
+    }
+
+    public void addFirst(E e) {
+        add(0, e);
+    }
+
+    public void addLast(E e) {
+        add(size(), e);
+    }
+
+    @Override
+    public E remove(int i) throws IndexOutOfBoundsException {
+        checkElementIndex(i);
+        // the element at i becomes the first after the gap, then joins it
+        moveGap(i);
+        @SuppressWarnings("unchecked")
+        final E temp = (E) elementData[gapEnd];
+        elementData[gapEnd++] = null;
+        return temp;
+    }
+
+    public E removeFirst() {
+        return remove(0);
+    }
+
+    public E removeLast() {
+        if (isEmpty()) {
+            return null;
+        }
+        return remove(size() - 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size(); i++) {
+            sb.append(get(i)).append(" ");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new listIterator();
+    }
+
+    private class listIterator implements Iterator<E> {
+        private int lastReturnedIndex = -1;
+        private int cursor;
+
+        @Override
+        public boolean hasNext() {
+            return (cursor < size());
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturnedIndex = cursor;
+            cursor++;
+            @SuppressWarnings("unchecked")
+            final E e = (E) elementData[slot(lastReturnedIndex)];
+            return e;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturnedIndex < 0) {
+                throw new IllegalStateException();
+            }
+            GapBufferList.this.remove(lastReturnedIndex);
+            cursor = lastReturnedIndex;
+            lastReturnedIndex = -1;
+        }
+    }
+}
@@ -1,12 +1,25 @@
 package list;
 
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 public class LinkedList<E> implements List<E>, Iterable<E> {
+    /**
+     * doubly linked list with sentinels
+     *
+     * indexed access walks from the nearest of the first node, the last node
+     * and a finger, the node of the last indexed access or edit together with
+     * its index, so loops over neighbouring indexes take O(1) per step instead
+     * of O(n). Every insert and unlink moves the finger to the edit, so it is
+     * always valid. A ListCursor inserts and removes at its position in O(1).
+     */
     private final Node<E> header; // head sentinel
     private final Node<E> trailer; // tail sentinel
     private int size;
+    private Node<E> finger; // node at fingerIndex, or null
+    private int fingerIndex;
+    private int modCount; // structural changes, for fail-fast cursors
 
     public LinkedList() {
         this.header = new Node<>(null, null, null);
@@ -76,36 +89,48 @@ public class LinkedList<E> implements List<E>, Iterable<E> {
     private Node<E> nodeAt(int i) {
         checkElementIndex(i);
         Node<E> node;
+        int k;
         if (i < this.size / 2) {
-            // i locates at the first half of the linked list, iterate from the head node
+            // i locates at the first half of the linked list, start from the head node
             node = header.getNext();
-            for (int k = 0; k < i; k++) {
-                node = node.getNext();
-            }
-            return node;
+            k = 0;
         } else {
-            // i locates at the second half of the linked list, iterate from the tail node
+            // i locates at the second half of the linked list, start from the tail node
             node = trailer.getPrev();
-            for (int k = size - 1; k > i; k--) {
-                node = node.getPrev();
-            }
-            return node;
+            k = size - 1;
+        }
+        if ((finger != null) && (Math.abs(i - fingerIndex) < Math.abs(i - k))) {
+            node = finger;
+            k = fingerIndex;
+        }
+        for (; k < i; k++) {
+            node = node.getNext();
         }
+        for (; k > i; k--) {
+            node = node.getPrev();
+        }
+        finger = node;
+        fingerIndex = i;
+        return node;
     }
 
-    private void addBetween(E e, Node<E> pred, Node<E> succ) {
+    private void addBetween(E e, Node<E> pred, Node<E> succ, int index) {
+        // index is the position of the new node
         Node<E> node = new Node<>(e, pred, succ);
         pred.setNext(node);
         succ.setPrev(node);
         size++;
+        modCount++;
+        finger = node;
+        fingerIndex = index;
     }
 
     public void addFirst(E e) {
-        addBetween(e, header, header.getNext());
+        addBetween(e, header, header.getNext(), 0);
     }
 
     public void addLast(E e) {
-        addBetween(e, trailer.getPrev(), trailer);
+        addBetween(e, trailer.getPrev(), trailer, size);
     }
 
     public void add(E e) {
@@ -115,10 +140,13 @@ public class LinkedList<E> implements List<E>, Iterable<E> {
     @Override
     public void add(int i, E e) throws IndexOutOfBoundsException {
         checkPositionIndex(i);
-        Node<E> node = nodeAt(i);
-        Node<E> pred = node.getPrev();
-        Node<E> succ = node.getNext();
-        addBetween(e, pred, succ);
+        if (i == size) {
+            addLast(e);
+            return;
+        }
+        // the new node goes in front of the one now at i
+        Node<E> succ = nodeAt(i);
+        addBetween(e, succ.getPrev(), succ, i);
     }
 
     private void purgeNode(Node<E> node) {
@@ -129,7 +157,8 @@ public class LinkedList<E> implements List<E>, Iterable<E> {
         node.setPrev(null);
     }
 
-    private E unlink(Node<E> node) {
+    private E unlink(Node<E> node, int index) {
+        // index is the position of node
         if (node == null) {
             throw new IllegalArgumentException("unlink null object");
         }
@@ -143,6 +172,17 @@ public class LinkedList<E> implements List<E>, Iterable<E> {
         next.setPrev(prev);
         purgeNode(node);
         size--;
+        modCount++;
+        // the finger moves to a neighbour
+        if (next != trailer) {
+            finger = next;
+            fingerIndex = index;
+        } else if (prev != header) {
+            finger = prev;
+            fingerIndex = index - 1;
+        } else {
+            finger = null;
+        }
         return element;
     }
 
@@ -150,33 +190,21 @@ public class LinkedList<E> implements List<E>, Iterable<E> {
         if (size == 0) {
             throw new NoSuchElementException();
         }
-        final Node<E> first = header.getNext();
-        final E element = first.getElement();
-        header.setNext(first.getNext());
-        first.getNext().setPrev(header);
-        purgeNode(first);
-        size--;
-        return element;
+        return unlink(header.getNext(), 0);
     }
 
     private E unlinkLast() {
         if (size == 0) {
             throw new NoSuchElementException();
         }
-        final Node<E> last = trailer.getPrev();
-        final E element = last.getElement();
-        trailer.setPrev(last.getPrev());
-        last.getPrev().setNext(trailer);
-        purgeNode(last);
-        size--;
-        return element;
+        return unlink(trailer.getPrev(), size - 1);
     }
 
     @Override
     public E remove(int i) throws IndexOutOfBoundsException {
         checkElementIndex(i);
         Node<E> node = nodeAt(i);
-        E element = unlink(node);
+        E element = unlink(node, i);
         return element;
     }
 
@@ -287,9 +315,123 @@ public class LinkedList<E> implements List<E>, Iterable<E> {
             if (lastReturned == null) {
                 throw new IllegalStateException();
             }
-            unlink(lastReturned);
+            unlink(lastReturned, nextIndex - 1);
             lastReturned = null;
             nextIndex--;
         }
     }
+
+    /**
+     * @return a cursor in front of the first element
+     */
+    public ListCursor<E> cursor() {
+        return new cursor(0);
+    }
+
+    /**
+     * @return a cursor in front of the element at index i, or at the end if i
+     *         is size()
+     */
+    public ListCursor<E> cursor(int i) throws IndexOutOfBoundsException {
+        checkPositionIndex(i);
+        return new cursor(i);
+    }
+
+    private class cursor implements ListCursor<E> {
+        private Node<E> next; // node at nextIndex, trailer at the end
+        private int nextIndex;
+        private Node<E> lastReturned = null;
+        private int expectedModCount = modCount;
+
+        cursor(int i) {
+            next = (i == size ? trailer : nodeAt(i));
+            nextIndex = i;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (nextIndex < size);
+        }
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = next.getNext();
+            nextIndex++;
+            return lastReturned.getElement();
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return (nextIndex > 0);
+        }
+
+        @Override
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            next = next.getPrev();
+            lastReturned = next;
+            nextIndex--;
+            return lastReturned.getElement();
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void add(E e) {
+            checkForComodification();
+            addBetween(e, next.getPrev(), next, nextIndex);
+            nextIndex++;
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (lastReturned == next) {
+                // after previous(), the cursor keeps its index
+                next = next.getNext();
+                unlink(lastReturned, nextIndex);
+            } else {
+                nextIndex--;
+                unlink(lastReturned, nextIndex);
+            }
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(E e) {
+            checkForComodification();
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            lastReturned.setElement(e);
+        }
+    }
 }
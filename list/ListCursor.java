@@ -0,0 +1,27 @@
+package list;
+
+public interface ListCursor<E> {
+    /**
+     * position between two elements of a list, moved one element at a time;
+     * the semantics of java.util.ListIterator, so that a linked list can
+     * insert and remove at the cursor in O(1)
+     */
+
+    boolean hasNext();
+
+    E next(); // returns the element after the cursor and moves past it
+
+    boolean hasPrevious();
+
+    E previous(); // returns the element before the cursor and moves back over it
+
+    int nextIndex(); // index of the element next() would return
+
+    int previousIndex(); // index of the element previous() would return, -1 at the front
+
+    void add(E e); // inserts e in front of the cursor, a following next() is unaffected
+
+    void remove(); // removes the element last returned by next() or previous()
+
+    void set(E e); // replaces the element last returned by next() or previous()
+}
@@ -0,0 +1,224 @@
+package list;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+public class LongArrayList {
+    /**
+     * dynamic array of primitive long, the operations of List without boxing
+     *
+     * elements live in a long[], 8 bytes each against a reference plus a 16
+     * byte Long in ArrayList, and get reads the array directly. Grows like
+     * ArrayList, doubling the array when it is full.
+     */
+
+    private static final int CAPACITY = 16;
+    private int size = 0;
+    private long[] elementData;
+
+    public LongArrayList() {
+        this(CAPACITY);
+    }
+
+    public LongArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        elementData = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    private void checkElementIndex(int i) throws IndexOutOfBoundsException {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Illegal index: " + i);
+        }
+    }
+
+    private void checkPositionIndex(int i) throws IndexOutOfBoundsException {
+        if (i < 0 || i > size) {
+            throw new IndexOutOfBoundsException("Illegal index: " + i);
+        }
+    }
+
+    public long get(int i) throws IndexOutOfBoundsException {
+        checkElementIndex(i);
+        return elementData[i];
+    }
+
+    public long set(int i, long e) throws IndexOutOfBoundsException {
+        checkElementIndex(i);
+        long temp = elementData[i];
+        elementData[i] = e;
+        return temp;
+    }
+
+    public void resize(int capacity) {
+        if (capacity < size) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        long[] temp = new long[capacity];
+        System.arraycopy(elementData, 0, temp, 0, size);
+        elementData = temp;
+    }
+
+    private void ensureRoom(int n) {
+        // double until n more elements fit
+        if (size + n > elementData.length) {
+            int capacity = Math.max(elementData.length, 1);
+            while (capacity < size + n) {
+                capacity *= 2;
+            }
+            resize(capacity);
+        }
+    }
+
+    public void add(int i, long e) throws IndexOutOfBoundsException {
+        checkPositionIndex(i);
+        ensureRoom(1);
+        System.arraycopy(elementData, i, elementData, i + 1, size - i);
+        elementData[i] = e;
+        size++;
+    }
+
+    public void add(long e) {
+        ensureRoom(1);
+        elementData[size++] = e;
+    }
+
+    public void addFirst(long e) {
+        add(0, e);
+    }
+
+    public void addLast(long e) {
+        add(e);
+    }
+
+    public void addAll(int i, long[] a) throws IndexOutOfBoundsException {
+        checkPositionIndex(i);
+        insert(i, a, a.length);
+    }
+
+    public void addAll(long[] a) {
+        addAll(size, a);
+    }
+
+    /**
+     * inserts the elements of list at i, list may be this
+     */
+    public void addAll(int i, LongArrayList list) throws IndexOutOfBoundsException {
+        checkPositionIndex(i);
+        // the shift would overwrite the source if it is this list
+        long[] a = (list == this ? toArray() : list.elementData);
+        insert(i, a, list.size);
+    }
+
+    public void addAll(LongArrayList list) {
+        addAll(size, list);
+    }
+
+    private void insert(int i, long[] a, int n) {
+        ensureRoom(n);
+        System.arraycopy(elementData, i, elementData, i + n, size - i);
+        System.arraycopy(a, 0, elementData, i, n);
+        size += n;
+    }
+
+    public long remove(int i) throws IndexOutOfBoundsException {
+        checkElementIndex(i);
+        long temp = elementData[i];
+        System.arraycopy(elementData, i + 1, elementData, i, size - i - 1);
+        size--;
+        return temp;
+    }
+
+    public long removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return remove(0);
+    }
+
+    public long removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return elementData[--size];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return a copy of the elements, in order
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(elementData, size);
+    }
+
+    /**
+     * sorts the elements into ascending order
+     */
+    public void sort() {
+        Arrays.sort(elementData, 0, size);
+    }
+
+    /**
+     * @return the index of key in the sorted list, or (-(insertion point) - 1)
+     *         as Arrays.binarySearch
+     */
+    public int binarySearch(long key) {
+        return Arrays.binarySearch(elementData, 0, size, key);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.append(elementData[i]).append(" ");
+        }
+        return sb.toString();
+    }
+
+    public PrimitiveIterator.OfLong iterator() {
+        return new listIterator();
+    }
+
+    private class listIterator implements PrimitiveIterator.OfLong {
+        private int lastReturnedIndex = -1;
+        private int cursor;
+
+        @Override
+        public boolean hasNext() {
+            return (cursor < size);
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturnedIndex = cursor;
+            cursor++;
+            return elementData[lastReturnedIndex];
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturnedIndex < 0) {
+                throw new IllegalStateException();
+            }
+            LongArrayList.this.remove(lastReturnedIndex);
+            cursor = lastReturnedIndex;
+            lastReturnedIndex = -1;
+        }
+    }
+}
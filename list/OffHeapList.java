@@ -0,0 +1,277 @@
+package list;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class OffHeapList<E> implements List<E>, Iterable<E>, AutoCloseable {
+    /**
+     * dynamic array of fixed-width records outside the Java heap
+     *
+     * elements are stored in the binary form of a RecordCodec, in direct
+     * ByteBuffers of a fixed power-of-2 number of records (about 1 MiB each),
+     * allocated as the list grows. The heap only holds the array of chunks, so
+     * a hundred million records are a few thousand objects for the collector
+     * instead of a hundred million; get decodes a fresh element on each call.
+     * Inserts and removes in the middle shift the tail chunk by chunk, as
+     * ArrayList shifts its array.
+     *
+     * close() drops every chunk, the list cannot be used afterwards. The
+     * memory itself is returned when the collector clears the buffers, Java 17
+     * has no way to free a direct buffer on the spot.
+     */
+
+    private static final int CHUNK_BYTES = 1 << 20; // target chunk size
+    private static final int CHUNKS = 16; // initial length of the chunk array
+
+    private final RecordCodec<E> codec;
+    private final int width; // bytes per record
+    private final int shift; // records per chunk is 1 << shift
+    private final int mask;
+    private ByteBuffer[] chunks;
+    private int chunkCount; // chunks allocated
+    private int size = 0;
+    private byte[] scratch; // for shifting, one chunk at most
+    private boolean closed;
+
+    public OffHeapList(RecordCodec<E> codec) {
+        int w = codec.width();
+        if (w <= 0 || w > CHUNK_BYTES) {
+            throw new IllegalArgumentException("Illegal record width: " + w);
+        }
+        this.codec = codec;
+        this.width = w;
+        this.shift = 31 - Integer.numberOfLeadingZeros(CHUNK_BYTES / w);
+        this.mask = (1 << shift) - 1;
+        this.chunks = new ByteBuffer[CHUNKS];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("list is closed");
+        }
+    }
+
+    private void checkElementIndex(int i) throws IndexOutOfBoundsException {
+        checkOpen();
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Illegal index: " + i);
+        }
+    }
+
+    private void checkPositionIndex(int i) throws IndexOutOfBoundsException {
+        checkOpen();
+        if (i < 0 || i > size) {
+            throw new IndexOutOfBoundsException("Illegal index: " + i);
+        }
+    }
+
+    private ByteBuffer chunk(int i) {
+        return chunks[i >>> shift];
+    }
+
+    private int offset(int i) {
+        return (i & mask) * width;
+    }
+
+    @Override
+    public E get(int i) throws IndexOutOfBoundsException {
+        checkElementIndex(i);
+        return codec.decode(chunk(i), offset(i));
+    }
+
+    @Override
+    public E set(int i, E e) throws IndexOutOfBoundsException {
+        checkElementIndex(i);
+        ByteBuffer chunk = chunk(i);
+        int offset = offset(i);
+        E temp = codec.decode(chunk, offset);
+        codec.encode(e, chunk, offset);
+        return temp;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        // allocate chunks until record minCapacity - 1 has one
+        int needed = ((minCapacity - 1) >>> shift) + 1;
+        if (needed > chunks.length) {
+            ByteBuffer[] temp = new ByteBuffer[Math.max(chunks.length * 2, needed)];
+            System.arraycopy(chunks, 0, temp, 0, chunkCount);
+            chunks = temp;
+        }
+        while (chunkCount < needed) {
+            chunks[chunkCount++] = ByteBuffer.allocateDirect(width << shift).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private void moveWithin(ByteBuffer chunk, int from, int to, int records) {
+        // copy records [from, from + records) of one chunk to start at to
+        if (records <= 0) {
+            return;
+        }
+        if (scratch == null) {
+            scratch = new byte[width << shift];
+        }
+        int bytes = records * width;
+        chunk.get(from * width, scratch, 0, bytes);
+        chunk.put(to * width, scratch, 0, bytes);
+    }
+
+    private void moveAcross(int from, int to) {
+        // copy the single record from to the slot of record to
+        if (scratch == null) {
+            scratch = new byte[width << shift];
+        }
+        chunk(from).get(offset(from), scratch, 0, width);
+        chunk(to).put(offset(to), scratch, 0, width);
+    }
+
+    private void shiftRight(int i) {
+        /**
+         * moves records [i, size) up by one, from the last chunk down
+         */
+        int first = i >>> shift, last = size >>> shift;
+        for (int c = last; c >= first; c--) {
+            int lo = (c == first ? i & mask : 0);
+            int hi = (c == last ? size & mask : mask + 1); // exclusive
+            if (c != last) {
+                // the last record of this chunk becomes the first of the next
+                moveAcross((c << shift) + mask, (c + 1) << shift);
+                hi--;
+            }
+            moveWithin(chunks[c], lo, lo + 1, hi - lo);
+        }
+    }
+
+    private void shiftLeft(int i) {
+        /**
+         * moves records [i + 1, size) down by one, from the first chunk up
+         */
+        int first = i >>> shift, last = (size - 1) >>> shift;
+        for (int c = first; c <= last; c++) {
+            int lo = (c == first ? i & mask : 0);
+            int hi = (c == last ? ((size - 1) & mask) + 1 : mask + 1); // exclusive
+            moveWithin(chunks[c], lo + 1, lo, hi - lo - 1);
+            if (c != last) {
+                // the first record of the next chunk becomes the last of this
+                moveAcross((c + 1) << shift, (c << shift) + mask);
+            }
+        }
+    }
+
+    @Override
+    public void add(int i, E e) throws IndexOutOfBoundsException {
+        checkPositionIndex(i);
+        ensureCapacity(size + 1);
+        if (i < size) {
+            shiftRight(i);
+        }
+        codec.encode(e, chunk(i), offset(i));
+        size++;
+    }
+
+    public void add(E e) {
+        add(size, e);
+    }
+
+    public void addFirst(E e) {
+        add(0, e);
+    }
+
+    public void addLast(E e) {
+        add(size, e);
+    }
+
+    @Override
+    public E remove(int i) throws IndexOutOfBoundsException {
+        checkElementIndex(i);
+        E temp = codec.decode(chunk(i), offset(i));
+        if (i < size - 1) {
+            shiftLeft(i);
+        }
+        size--;
+        return temp;
+    }
+
+    public E removeFirst() {
+        return remove(0);
+    }
+
+    public E removeLast() {
+        if (isEmpty()) {
+            return null;
+        }
+        return remove(size - 1);
+    }
+
+    /**
+     * @return bytes of off-heap memory held by the chunks
+     */
+    public long offHeapBytes() {
+        return (long) chunkCount * (width << shift);
+    }
+
+    @Override
+    public void close() {
+        chunks = new ByteBuffer[0];
+        chunkCount = 0;
+        size = 0;
+        scratch = null;
+        closed = true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.append(get(i)).append(" ");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        checkOpen();
+        return new listIterator();
+    }
+
+    private class listIterator implements Iterator<E> {
+        private int lastReturnedIndex = -1;
+        private int cursor;
+
+        @Override
+        public boolean hasNext() {
+            return (cursor < size);
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturnedIndex = cursor;
+            cursor++;
+            return get(lastReturnedIndex);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturnedIndex < 0) {
+                throw new IllegalStateException();
+            }
+            OffHeapList.this.remove(lastReturnedIndex);
+            cursor = lastReturnedIndex;
+            lastReturnedIndex = -1;
+        }
+    }
+}
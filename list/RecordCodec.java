@@ -0,0 +1,70 @@
+package list;
+
+import java.nio.ByteBuffer;
+
+public interface RecordCodec<E> {
+    /**
+     * fixed-width binary form of an element, for OffHeapList
+     *
+     * encode writes exactly width() bytes at offset and decode reads them
+     * back, both with the absolute get and put methods of ByteBuffer, which
+     * leave the buffer position alone.
+     */
+
+    int width(); // bytes per element, the same for every element
+
+    void encode(E e, ByteBuffer buffer, int offset);
+
+    E decode(ByteBuffer buffer, int offset);
+
+    RecordCodec<Integer> INT = new RecordCodec<>() {
+        @Override
+        public int width() {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public void encode(Integer e, ByteBuffer buffer, int offset) {
+            buffer.putInt(offset, e);
+        }
+
+        @Override
+        public Integer decode(ByteBuffer buffer, int offset) {
+            return buffer.getInt(offset);
+        }
+    };
+
+    RecordCodec<Long> LONG = new RecordCodec<>() {
+        @Override
+        public int width() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void encode(Long e, ByteBuffer buffer, int offset) {
+            buffer.putLong(offset, e);
+        }
+
+        @Override
+        public Long decode(ByteBuffer buffer, int offset) {
+            return buffer.getLong(offset);
+        }
+    };
+
+    RecordCodec<Double> DOUBLE = new RecordCodec<>() {
+        @Override
+        public int width() {
+            return Double.BYTES;
+        }
+
+        @Override
+        public void encode(Double e, ByteBuffer buffer, int offset) {
+            buffer.putDouble(offset, e);
+        }
+
+        @Override
+        public Double decode(ByteBuffer buffer, int offset) {
+            return buffer.getDouble(offset);
+        }
+    };
+}
@@ -1,23 +1,50 @@
 package map;
 
 import list.ArrayList;
+import metrics.Instrumented;
+import metrics.MetricsRecorder;
+import metrics.StructureMetrics;
+
 import java.util.Random;
 
-public abstract class AbstractHashMap<K, V> extends AbstractMap<K, V> {
+public abstract class AbstractHashMap<K, V> extends AbstractMap<K, V> implements Instrumented {
     protected int n = 0;
     protected int capacity;
+    protected MetricsRecorder metrics; // null unless enabled
+    private final HashStrategy strategy;
     private int prime; // prime number
-    private long scale, shift; // factors for hash function
+    private long scale, shift; // factors for hash function, MAD
+    private int seed; // factor for hash function, MIX
 
-    public AbstractHashMap(int cap, int p) {
+    /**
+     * incremental rehash: instead of moving every entry at once, resize retires
+     * the current table next to a new one and each later operation migrates up
+     * to REHASH_STEP non-empty retired buckets, until the retired table is empty
+     */
+    private static final int REHASH_STEP = 4;
+    private boolean incremental = false;
+    private int retiredCapacity;
+    private int rehashIndex = -1; // next retired bucket to migrate, -1 when not rehashing
+
+    public AbstractHashMap(int cap, int p, HashStrategy strategy) {
+        this.strategy = strategy;
         prime = p;
-        capacity = cap;
+        capacity = (strategy == HashStrategy.MIX ? powerOfTwo(cap) : cap);
         Random rand = new Random();
         scale = rand.nextInt(prime - 1) + 1; // from set {1, 2, 3, ..., p-1}
         shift = rand.nextInt(prime); // from set {0, 1, 2, 3, ..., p}
+        seed = rand.nextInt();
         createTable();
     }
 
+    public AbstractHashMap(int cap, int p) {
+        this(cap, p, HashStrategy.MAD);
+    }
+
+    public AbstractHashMap(int cap, HashStrategy strategy) {
+        this(cap, 109345121, strategy);
+    }
+
     public AbstractHashMap(int cap) {
         this(cap, 109345121);
     }
@@ -33,43 +60,186 @@ public abstract class AbstractHashMap<K, V> extends AbstractMap<K, V> {
 
     @Override
     public boolean containsKey(K key) {
-        return (bucketGet(hashValue(key), key) != null);
+        return (get(key) != null);
     }
 
     @Override
     public V get(K key) {
-        return bucketGet(hashValue(key), key);
+        if (isRehashing()) {
+            rehashStep();
+        }
+        V retValue = bucketGet(hashValue(key), key);
+        if ((retValue == null) && isRehashing()) {
+            retValue = retiredBucketGet(hashValue(key, retiredCapacity), key);
+        }
+        return retValue;
     }
 
     @Override
     public V put(K key, V value) {
-        V retValue = bucketPut(hashValue(key), key, value);
+        if (isRehashing()) {
+            rehashStep();
+        }
+        V retValue;
+        if (isRehashing()) {
+            // a key lives in one table only, move it out of the retired one
+            V oldValue = retiredBucketRemove(hashValue(key, retiredCapacity), key);
+            retValue = bucketPut(hashValue(key), key, value);
+            if (oldValue != null) {
+                retValue = oldValue;
+            }
+        } else {
+            retValue = bucketPut(hashValue(key), key, value);
+        }
         if (n > capacity / 2) { // load factor <= 0.5
-            resize(2 * capacity - 1); // better: ensure new capacity is a prime number
+            if (strategy == HashStrategy.MIX) {
+                resize(2 * capacity);
+            } else {
+                resize(2 * capacity - 1); // better: ensure new capacity is a prime number
+            }
         }
         return retValue;
     }
 
     @Override
     public V remove(K key) {
-        return bucketRemove(hashValue(key), key);
+        if (isRehashing()) {
+            rehashStep();
+        }
+        V retValue = bucketRemove(hashValue(key), key);
+        if ((retValue == null) && isRehashing()) {
+            retValue = retiredBucketRemove(hashValue(key, retiredCapacity), key);
+        }
+        return retValue;
     }
 
     // utility hash function
     private int hashValue(K key) {
-        return (int) ((Math.abs(key.hashCode() * scale + shift) % prime) % capacity);
+        return hashValue(key, capacity);
+    }
+
+    private int hashValue(K key, int cap) {
+        if (strategy == HashStrategy.MIX) {
+            // cap is a power of 2
+            return mix(key.hashCode() ^ seed) & (cap - 1);
+        }
+        return (int) ((Math.abs(key.hashCode() * scale + shift) % prime) % cap);
+    }
+
+    static int mix(int h) {
+        // murmur3 32-bit finalizer, every input bit affects the low bits
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int powerOfTwo(int cap) {
+        int size = 1;
+        while (size < cap) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    public HashStrategy getHashStrategy() {
+        return strategy;
+    }
+
+    public boolean isIncrementalRehash() {
+        return incremental;
+    }
+
+    public void setIncrementalRehash(boolean incremental) {
+        /**
+         * turn incremental rehashing on or off, a rehash in progress is completed
+         * first when turning it off
+         */
+        if (!incremental) {
+            finishRehash();
+        }
+        this.incremental = incremental;
+    }
+
+    @Override
+    public void setMetricsEnabled(boolean enabled) {
+        this.metrics = (enabled ? new MetricsRecorder() : null);
+    }
+
+    @Override
+    public boolean isMetricsEnabled() {
+        return (metrics != null);
+    }
+
+    @Override
+    public StructureMetrics getMetrics() {
+        return metrics;
+    }
+
+    protected boolean isRehashing() {
+        return (rehashIndex >= 0);
     }
 
     private void resize(int newCap) {
-        ArrayList<Entry<K, V>> buffer = new ArrayList<>(n);
-        for (Entry<K, V> e : entrySet()) {
-            buffer.add(e);
+        /**
+         * when metrics are enabled the time is recorded; in incremental mode that is
+         * only the switch to the new table, the migration is spread over later
+         * operations and counted with them
+         */
+        long start = (metrics != null ? System.nanoTime() : 0L);
+        if (incremental) {
+            finishRehash(); // at most one retired table
+            retireTable();
+            this.retiredCapacity = capacity;
+            this.capacity = newCap;
+            createTable();
+            this.rehashIndex = 0;
+        } else {
+            ArrayList<Entry<K, V>> buffer = new ArrayList<>(n);
+            for (Entry<K, V> e : entrySet()) {
+                buffer.add(e);
+            }
+            this.capacity = newCap;
+            createTable();
+            this.n = 0; // re-increment while inserting
+            for (Entry<K, V> e : buffer) {
+                put(e.getKey(), e.getValue());
+            }
         }
-        this.capacity = newCap;
-        createTable();
-        this.n = 0; // re-increment while inserting
-        for (Entry<K, V> e : buffer) {
-            put(e.getKey(), e.getValue());
+        if (metrics != null) {
+            metrics.resize(System.nanoTime() - start);
+        }
+    }
+
+    private void rehashStep() {
+        /**
+         * migrate up to REHASH_STEP non-empty retired buckets, and visit no more than
+         * 10 * REHASH_STEP buckets in total so a sparse table stays cheap too
+         */
+        int migrated = 0;
+        int visited = 0;
+        while ((rehashIndex < retiredCapacity) && (migrated < REHASH_STEP) && (visited < 10 * REHASH_STEP)) {
+            Iterable<Entry<K, V>> bucket = drainRetiredBucket(rehashIndex);
+            if (bucket != null) {
+                for (Entry<K, V> e : bucket) {
+                    bucketPut(hashValue(e.getKey()), e.getKey(), e.getValue());
+                }
+                migrated++;
+            }
+            rehashIndex++;
+            visited++;
+        }
+        if (rehashIndex == retiredCapacity) {
+            dropRetiredTable();
+            rehashIndex = -1;
+        }
+    }
+
+    private void finishRehash() {
+        while (isRehashing()) {
+            rehashStep();
         }
     }
 
@@ -80,4 +250,18 @@ public abstract class AbstractHashMap<K, V> extends AbstractMap<K, V> {
     protected abstract V bucketPut(int h, K k, V v);
 
     protected abstract V bucketRemove(int h, K k);
+
+    /**
+     * incremental rehash support: the table set aside by retireTable() is
+     * drained bucket by bucket into the current one
+     */
+    protected abstract void retireTable(); // keep the current table aside as the retired table, before createTable()
+
+    protected abstract V retiredBucketGet(int h, K k);
+
+    protected abstract V retiredBucketRemove(int h, K k);
+
+    protected abstract Iterable<Entry<K, V>> drainRetiredBucket(int h); // remove and return the entries of retired bucket h, or null if it is empty
+
+    protected abstract void dropRetiredTable();
 }
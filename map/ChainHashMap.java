@@ -3,7 +3,18 @@ package map;
 import list.ArrayList;
 
 public class ChainHashMap<K, V> extends AbstractHashMap<K, V> {
-    private UnsortedTableMap<K, V>[] table;
+    /**
+     * a bucket is an UnsortedTableMap, scanned linearly. Once it holds
+     * TREEIFY_THRESHOLD entries whose keys are Comparable and of the same class,
+     * it is converted into a TreeBucketMap (a red-black tree), so colliding keys
+     * cost O(log n) instead of O(n); it turns back into a table when it shrinks
+     * to UNTREEIFY_THRESHOLD, or when a key of another class joins the bucket.
+     */
+    static final int TREEIFY_THRESHOLD = 8;
+    static final int UNTREEIFY_THRESHOLD = 6;
+
+    private AbstractMap<K, V>[] table;
+    private AbstractMap<K, V>[] retired; // previous table, while rehashing incrementally
 
     public ChainHashMap() {
         super();
@@ -13,121 +24,168 @@ public class ChainHashMap<K, V> extends AbstractHashMap<K, V> {
         super(cap);
     }
 
+    public ChainHashMap(int cap, HashStrategy strategy) {
+        super(cap, strategy);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     protected void createTable() {
-        this.table = (UnsortedTableMap<K, V>[]) new UnsortedTableMap[this.capacity];
+        this.table = (AbstractMap<K, V>[]) new AbstractMap[this.capacity];
     }
 
     @Override
     protected V bucketGet(int h, K k) {
-        UnsortedTableMap<K, V> bucket = table[h];
+        AbstractMap<K, V> bucket = table[h];
+        recordProbe(bucket);
         if (bucket == null) {
             return null;
         }
         return bucket.get(k);
     }
 
+    private void recordProbe(AbstractMap<K, V> bucket) {
+        /**
+         * the entries a lookup may inspect: the whole chain of a table bucket, one
+         * root-to-leaf path (bounded by the bit length of its size) of a tree bucket
+         */
+        if (metrics == null) {
+            return;
+        }
+        if (bucket == null) {
+            metrics.probe(0);
+        } else if (bucket instanceof TreeBucketMap) {
+            metrics.probe(32 - Integer.numberOfLeadingZeros(bucket.size()));
+        } else {
+            metrics.probe(bucket.size());
+        }
+    }
+
     @Override
     protected V bucketPut(int h, K k, V v) {
-        UnsortedTableMap<K, V> bucket = table[h];
+        AbstractMap<K, V> bucket = table[h];
+        recordProbe(bucket);
         if (bucket == null) {
             bucket = new UnsortedTableMap<>();
             table[h] = bucket;
+        } else if ((bucket instanceof TreeBucketMap) && !((TreeBucketMap<K, V>) bucket).accepts(k)) {
+            bucket = untreeify(bucket);
+            table[h] = bucket;
         }
         int oldSize = bucket.size();
         V ret = bucket.put(k, v);
         this.n += (bucket.size() - oldSize);
+        if ((bucket.size() >= TREEIFY_THRESHOLD) && (bucket instanceof UnsortedTableMap)) {
+            table[h] = treeify(bucket);
+        }
         return ret;
     }
 
     @Override
     protected V bucketRemove(int h, K k) {
-        UnsortedTableMap<K, V> bucket = table[h];
+        AbstractMap<K, V> bucket = table[h];
+        recordProbe(bucket);
         if (bucket == null) {
             return null;
         }
         int oldSize = bucket.size();
         V ret = bucket.remove(k);
         this.n -= (oldSize - bucket.size());
+        if ((bucket.size() <= UNTREEIFY_THRESHOLD) && (bucket instanceof TreeBucketMap)) {
+            table[h] = untreeify(bucket);
+        }
         return ret;
     }
 
-    @Override
-    public Iterable<Entry<K, V>> entrySet() {
-        ArrayList<Entry<K, V>> buffer = new ArrayList<>();
-        for (int h = 0; h < capacity; h++) {
-            if (table[h] != null) {
-                for (Entry<K, V> entry : table[h].entrySet()) {
-                    buffer.add(entry);
-                }
+    private AbstractMap<K, V> treeify(AbstractMap<K, V> bucket) {
+        /**
+         * @return a tree bucket with the same entries, or bucket itself if its keys
+         *         are not mutually comparable
+         */
+        Class<?> keyClass = null;
+        for (Entry<K, V> e : bucket.entrySet()) {
+            Class<?> c = e.getKey().getClass();
+            if (keyClass == null) {
+                keyClass = c;
+            }
+            if ((c != keyClass) || !(e.getKey() instanceof Comparable)) {
+                return bucket;
             }
         }
-        return buffer;
+        TreeBucketMap<K, V> tree = new TreeBucketMap<>(keyClass);
+        for (Entry<K, V> e : bucket.entrySet()) {
+            tree.put(e.getKey(), e.getValue());
+        }
+        return tree;
     }
-}
-
-class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
-    private ArrayList<MapEntry<K, V>> table = new ArrayList<>();
 
-    public UnsortedTableMap() {
+    private AbstractMap<K, V> untreeify(AbstractMap<K, V> bucket) {
+        UnsortedTableMap<K, V> list = new UnsortedTableMap<>();
+        for (Entry<K, V> e : bucket.entrySet()) {
+            list.put(e.getKey(), e.getValue());
+        }
+        return list;
     }
 
     @Override
-    public int size() {
-        return table.size();
-    }
-
-    private int findIdx(K key) {
-        for (int i = 0; i < size(); i++) {
-            if (table.get(i).getKey().equals(key)) {
-                return i;
-            }
-        }
-        return -1;
+    protected void retireTable() {
+        this.retired = this.table;
     }
 
     @Override
-    public V get(K key) {
-        int idx = findIdx(key);
-        if (idx == -1) {
+    protected V retiredBucketGet(int h, K k) {
+        AbstractMap<K, V> bucket = retired[h];
+        if (bucket == null) {
             return null;
         }
-        return table.get(idx).getValue();
+        return bucket.get(k);
     }
 
     @Override
-    public V put(K key, V value) {
-        int idx = findIdx(key);
-        if (idx == -1) {
-            table.add(new MapEntry<K, V>(key, value));
+    protected V retiredBucketRemove(int h, K k) {
+        AbstractMap<K, V> bucket = retired[h];
+        if (bucket == null) {
             return null;
         }
-        return table.get(idx).setValue(value);
+        int oldSize = bucket.size();
+        V ret = bucket.remove(k);
+        this.n -= (oldSize - bucket.size());
+        return ret;
     }
 
     @Override
-    public V remove(K key) {
-        int idx = findIdx(key);
-        if (idx == -1) {
+    protected Iterable<Entry<K, V>> drainRetiredBucket(int h) {
+        AbstractMap<K, V> bucket = retired[h];
+        if (bucket == null || bucket.isEmpty()) {
             return null;
         }
-        V ret = table.get(idx).getValue();
-        table.remove(idx);
-        return ret;
+        retired[h] = null;
+        this.n -= bucket.size();
+        return bucket.entrySet();
     }
 
     @Override
-    public boolean containsKey(K key) {
-        return (findIdx(key) != -1);
+    protected void dropRetiredTable() {
+        this.retired = null;
     }
 
     @Override
     public Iterable<Entry<K, V>> entrySet() {
         ArrayList<Entry<K, V>> buffer = new ArrayList<>();
-        for (Entry<K, V> entry : table) {
-            buffer.add(entry);
+        collect(table, buffer);
+        if (retired != null) {
+            collect(retired, buffer);
         }
         return buffer;
     }
+
+    private static <K, V> void collect(AbstractMap<K, V>[] buckets, ArrayList<Entry<K, V>> buffer) {
+        for (int h = 0; h < buckets.length; h++) {
+            if (buckets[h] != null) {
+                for (Entry<K, V> entry : buckets[h].entrySet()) {
+                    buffer.add(entry);
+                }
+            }
+        }
+    }
 }
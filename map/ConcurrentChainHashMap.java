@@ -0,0 +1,209 @@
+package map;
+
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import list.ArrayList;
+
+public class ConcurrentChainHashMap<K, V> extends AbstractMap<K, V> {
+    /**
+     * thread-safe separate chaining hash map with lock striping
+     *
+     * the high bits of the hash pick one of a fixed number of stripes, each of
+     * them a small chain hash table guarded by its own read-write lock: gets on
+     * a stripe run concurrently, a put or remove only blocks the stripe it
+     * touches, and every stripe resizes on its own, so a resize never stops the
+     * whole map. Iteration is weakly consistent, one stripe at a time.
+     */
+
+    private static final int STRIPES = 16;
+    private static final int CAPACITY = 16; // initial buckets per stripe
+
+    private final Stripe[] stripes;
+    private final int stripeShift; // the high bits of the hash select the stripe
+    private final int seed; // random factor for hash function
+
+    public ConcurrentChainHashMap() {
+        this(STRIPES * CAPACITY);
+    }
+
+    public ConcurrentChainHashMap(int cap) {
+        this(cap, STRIPES);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentChainHashMap(int cap, int concurrencyLevel) {
+        if (cap < 0 || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Illegal capacity or concurrency level");
+        }
+        int stripeCount = powerOfTwo(concurrencyLevel);
+        int stripeCap = powerOfTwo(Math.max(2, cap / stripeCount));
+        this.stripes = (Stripe[]) new ConcurrentChainHashMap.Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(stripeCap);
+        }
+        this.stripeShift = 32 - Integer.numberOfTrailingZeros(stripeCount);
+        this.seed = new Random().nextInt();
+    }
+
+    private static int powerOfTwo(int cap) {
+        int size = 1;
+        while (size < cap) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private final class Stripe extends ReentrantReadWriteLock {
+        private static final long serialVersionUID = 1L;
+
+        private UnsortedTableMap<K, V>[] table; // capacity is a power of 2
+        private volatile int n; // written under the write lock only
+
+        Stripe(int cap) {
+            createTable(cap);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void createTable(int cap) {
+            this.table = (UnsortedTableMap<K, V>[]) new UnsortedTableMap[cap];
+        }
+
+        V bucketGet(int h, K k) {
+            UnsortedTableMap<K, V> bucket = table[h & (table.length - 1)];
+            if (bucket == null) {
+                return null;
+            }
+            return bucket.get(k);
+        }
+
+        V bucketPut(int h, K k, V v) {
+            int i = h & (table.length - 1);
+            UnsortedTableMap<K, V> bucket = table[i];
+            if (bucket == null) {
+                bucket = new UnsortedTableMap<>();
+                table[i] = bucket;
+            }
+            int oldSize = bucket.size();
+            V ret = bucket.put(k, v);
+            if (bucket.size() > oldSize) {
+                n++;
+                if (n > table.length / 2) { // load factor <= 0.5
+                    resize(2 * table.length);
+                }
+            }
+            return ret;
+        }
+
+        V bucketRemove(int h, K k) {
+            UnsortedTableMap<K, V> bucket = table[h & (table.length - 1)];
+            if (bucket == null) {
+                return null;
+            }
+            int oldSize = bucket.size();
+            V ret = bucket.remove(k);
+            if (bucket.size() < oldSize) {
+                n--;
+            }
+            return ret;
+        }
+
+        private void resize(int newCap) {
+            UnsortedTableMap<K, V>[] old = table;
+            createTable(newCap);
+            for (UnsortedTableMap<K, V> bucket : old) {
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entry<K, V> e : bucket.entrySet()) {
+                    int i = hashValue(e.getKey()) & (newCap - 1);
+                    if (table[i] == null) {
+                        table[i] = new UnsortedTableMap<>();
+                    }
+                    table[i].put(e.getKey(), e.getValue());
+                }
+            }
+        }
+    }
+
+    // utility hash function
+    private int hashValue(K key) {
+        return AbstractHashMap.mix(key.hashCode() ^ seed);
+    }
+
+    private Stripe stripeFor(int h) {
+        // shift as long, a single stripe shifts all 32 bits out
+        return stripes[(int) ((h & 0xFFFFFFFFL) >>> stripeShift)];
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.n;
+        }
+        return size;
+    }
+
+    @Override
+    public V get(K key) {
+        int h = hashValue(key);
+        Stripe stripe = stripeFor(h);
+        stripe.readLock().lock();
+        try {
+            return stripe.bucketGet(h, key);
+        } finally {
+            stripe.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return (get(key) != null);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        int h = hashValue(key);
+        Stripe stripe = stripeFor(h);
+        stripe.writeLock().lock();
+        try {
+            return stripe.bucketPut(h, key, value);
+        } finally {
+            stripe.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        int h = hashValue(key);
+        Stripe stripe = stripeFor(h);
+        stripe.writeLock().lock();
+        try {
+            return stripe.bucketRemove(h, key);
+        } finally {
+            stripe.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        ArrayList<Entry<K, V>> buffer = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.readLock().lock();
+            try {
+                for (UnsortedTableMap<K, V> bucket : stripe.table) {
+                    if (bucket != null) {
+                        for (Entry<K, V> entry : bucket.entrySet()) {
+                            // copy under the lock, a put overwrites the live entry in place
+                            buffer.add(new MapEntry<>(entry.getKey(), entry.getValue()));
+                        }
+                    }
+                }
+            } finally {
+                stripe.readLock().unlock();
+            }
+        }
+        return buffer;
+    }
+}
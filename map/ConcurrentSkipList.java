@@ -0,0 +1,463 @@
+/**
+ * sorted map interface, lock-free concurrent skip list implementation
+ */
+package map;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrentSkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
+    /**
+     * Herlihy and Shavit's lock-free skip list, extended to a map
+     *
+     * every forward pointer is an AtomicMarkableReference whose mark flags the
+     * node owning it as deleted at that level. An insert links the new node at
+     * the bottom level with one CAS (its linearization point), then builds the
+     * tower upwards. A remove first CASes the value to null (its linearization
+     * point), then marks the tower top-down, and any traversal that meets a
+     * marked pointer snips the node out. get never writes. Levels come from
+     * ThreadLocalRandom, so threads share no random state.
+     *
+     * Entries handed out by the navigation methods and iterators are snapshots,
+     * iterators are weakly consistent and never throw
+     * ConcurrentModificationException.
+     */
+
+    private static final int MAX_LEVEL = 32;
+
+    private final Node<K, V> head; // -infinity
+    private final Node<K, V> tail; // +infinity
+    private final LongAdder size = new LongAdder();
+    // no node reaches this level, raised before a taller node is linked
+    private final AtomicInteger levelCount = new AtomicInteger(1);
+
+    public ConcurrentSkipList() {
+        this.head = new Node<>(null, null, MAX_LEVEL);
+        this.tail = new Node<>(null, null, MAX_LEVEL);
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.forwards[i] = new AtomicMarkableReference<>(tail, false);
+            tail.forwards[i] = new AtomicMarkableReference<>(null, false);
+        }
+    }
+
+    private static final class Node<K, V> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Node, Object> VALUE = AtomicReferenceFieldUpdater
+                .newUpdater(Node.class, Object.class, "value");
+
+        final K key;
+        volatile V value; // null once logically deleted
+        final int level;
+        final AtomicMarkableReference<Node<K, V>>[] forwards;
+
+        @SuppressWarnings("unchecked")
+        Node(K key, V value, int level) {
+            this.key = key;
+            this.value = value;
+            this.level = level;
+            this.forwards = (AtomicMarkableReference<Node<K, V>>[]) new AtomicMarkableReference[level];
+        }
+
+        boolean casValue(V expect, V update) {
+            return VALUE.compareAndSet(this, expect, update);
+        }
+    }
+
+    private int getRandomLevel() {
+        // geometric distribution, p = 1/2, in [1, MAX_LEVEL]
+        int bits = ThreadLocalRandom.current().nextInt();
+        return Integer.numberOfTrailingZeros(bits | (1 << (MAX_LEVEL - 1))) + 1;
+    }
+
+    private int compare(K key, Node<K, V> node) {
+        /**
+         * compare key with node, head and tail act as -infinity and +infinity
+         */
+        if (node == tail) {
+            return -1;
+        }
+        if (node == head) {
+            return 1;
+        }
+        return key.compareTo(node.key);
+    }
+
+    private boolean find(K key, Node<K, V>[] preds, Node<K, V>[] succs) {
+        /**
+         * fill preds[i] with the last node with key < key and succs[i] with its
+         * successor on each level i < levelCount, unlinking marked nodes on the way
+         *
+         * @return true if succs[0] holds key
+         */
+        boolean[] marked = { false };
+        retry: while (true) {
+            Node<K, V> pred = head;
+            for (int i = levelCount.get() - 1; i >= 0; i--) {
+                Node<K, V> curr = pred.forwards[i].getReference();
+                while (true) {
+                    Node<K, V> succ = curr.forwards[i].get(marked);
+                    while (marked[0]) {
+                        // curr is deleted, snip it out of level i
+                        if (!pred.forwards[i].compareAndSet(curr, succ, false, false)) {
+                            continue retry;
+                        }
+                        curr = pred.forwards[i].getReference();
+                        succ = curr.forwards[i].get(marked);
+                    }
+                    if (compare(key, curr) > 0) {
+                        pred = curr;
+                        curr = succ;
+                    } else {
+                        break;
+                    }
+                }
+                preds[i] = pred;
+                succs[i] = curr;
+            }
+            return (compare(key, succs[0]) == 0);
+        }
+    }
+
+    private void markTower(Node<K, V> node) {
+        /**
+         * mark every forward pointer of node, top-down, bottom level last
+         */
+        boolean[] marked = { false };
+        for (int i = node.level - 1; i >= 0; i--) {
+            Node<K, V> succ = node.forwards[i].get(marked);
+            while (!marked[0]) {
+                node.forwards[i].attemptMark(succ, true);
+                succ = node.forwards[i].get(marked);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node<K, V>[] newNodeArray() {
+        return (Node<K, V>[]) new Node[MAX_LEVEL];
+    }
+
+    private V insert(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("null values are not supported");
+        }
+        int level = getRandomLevel();
+        if (level > levelCount.get()) {
+            levelCount.accumulateAndGet(level, Math::max); // before find fills preds up to level
+        }
+        Node<K, V>[] preds = newNodeArray();
+        Node<K, V>[] succs = newNodeArray();
+        while (true) {
+            if (find(key, preds, succs)) {
+                // update existed node, unless it is being removed
+                Node<K, V> node = succs[0];
+                V oldValue = node.value;
+                if (oldValue != null) {
+                    if (node.casValue(oldValue, value)) {
+                        return oldValue;
+                    }
+                } else {
+                    markTower(node); // help the remover, next find unlinks it
+                }
+                continue;
+            }
+            // insert new node
+            Node<K, V> newNode = new Node<>(key, value, level);
+            for (int i = 0; i < level; i++) {
+                newNode.forwards[i] = new AtomicMarkableReference<>(succs[i], false);
+            }
+            if (!preds[0].forwards[0].compareAndSet(succs[0], newNode, false, false)) {
+                continue;
+            }
+            size.increment();
+            // build the tower
+            for (int i = 1; i < level; i++) {
+                while (true) {
+                    Node<K, V> succ = succs[i];
+                    Node<K, V> expected = newNode.forwards[i].getReference();
+                    if ((expected != succ) && !newNode.forwards[i].compareAndSet(expected, succ, false, false)) {
+                        return value; // marked, newNode is being removed
+                    }
+                    if (preds[i].forwards[i].compareAndSet(succ, newNode, false, false)) {
+                        break;
+                    }
+                    find(key, preds, succs);
+                    if (succs[0] != newNode) {
+                        return value; // already removed
+                    }
+                }
+            }
+            return value;
+        }
+    }
+
+    private V delete(K key) {
+        Node<K, V>[] preds = newNodeArray();
+        Node<K, V>[] succs = newNodeArray();
+        while (true) {
+            if (!find(key, preds, succs)) {
+                return null;
+            }
+            Node<K, V> node = succs[0];
+            V oldValue = node.value;
+            if (oldValue == null) {
+                return null; // another thread removed it first
+            }
+            if (node.casValue(oldValue, null)) {
+                markTower(node);
+                find(key, preds, succs); // unlink
+                size.decrement();
+                return oldValue;
+            }
+        }
+    }
+
+    private Node<K, V> search(K key, boolean inclusive) {
+        /**
+         * @return the first node with key greater than (or equal to, if inclusive)
+         *         key, possibly deleted meanwhile, or tail; wait-free, never writes
+         */
+        Node<K, V> pred = head;
+        Node<K, V> curr = null;
+        boolean[] marked = { false };
+        for (int i = levelCount.get() - 1; i >= 0; i--) {
+            curr = pred.forwards[i].getReference();
+            while (true) {
+                Node<K, V> succ = curr.forwards[i].get(marked);
+                while (marked[0]) {
+                    curr = succ;
+                    succ = curr.forwards[i].get(marked);
+                }
+                int cmp = compare(key, curr);
+                if (cmp > 0 || (cmp == 0 && !inclusive)) {
+                    pred = curr;
+                    curr = succ;
+                } else {
+                    break;
+                }
+            }
+        }
+        return curr;
+    }
+
+    private Node<K, V> nextLive(Node<K, V> node) {
+        /**
+         * @return node itself if it is alive, or the next alive node on the bottom
+         *         level, or tail
+         */
+        while ((node != tail) && (node.value == null)) {
+            node = node.forwards[0].getReference();
+        }
+        return node;
+    }
+
+    private Entry<K, V> snapshot(Node<K, V> node) {
+        /**
+         * @return an immutable copy of node, or null if node is tail or deleted
+         */
+        if (node == tail || node == head) {
+            return null;
+        }
+        V v = node.value;
+        if (v == null) {
+            return null;
+        }
+        return new MapEntry<>(node.key, v);
+    }
+
+    private Entry<K, V> lastBelow(K key, boolean inclusive) {
+        /**
+         * @return the entry with the greatest key less than (or equal to, if
+         *         inclusive) key, or the last entry if key is null
+         */
+        while (true) {
+            Node<K, V> pred = head;
+            boolean[] marked = { false };
+            for (int i = levelCount.get() - 1; i >= 0; i--) {
+                Node<K, V> curr = pred.forwards[i].getReference();
+                while (curr != tail) {
+                    Node<K, V> succ = curr.forwards[i].get(marked);
+                    if (!marked[0]) {
+                        int cmp = (key == null ? 1 : key.compareTo(curr.key));
+                        if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                            break;
+                        }
+                        pred = curr;
+                    }
+                    curr = succ;
+                }
+            }
+            if (pred == head) {
+                return null;
+            }
+            Entry<K, V> entry = snapshot(pred);
+            if (entry != null) {
+                return entry;
+            }
+            // pred was removed meanwhile, try again
+        }
+    }
+
+    @Override
+    public int size() {
+        return size.intValue();
+    }
+
+    @Override
+    public V get(K key) {
+        Node<K, V> node = search(key, true);
+        if ((node == tail) || (key.compareTo(node.key) != 0)) {
+            return null;
+        }
+        return node.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return insert(key, value);
+    }
+
+    @Override
+    public V remove(K key) {
+        return delete(key);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return (get(key) != null);
+    }
+
+    @Override
+    public Entry<K, V> firstEntry() {
+        while (true) {
+            Node<K, V> node = nextLive(head.forwards[0].getReference());
+            if (node == tail) {
+                return null;
+            }
+            Entry<K, V> entry = snapshot(node);
+            if (entry != null) {
+                return entry;
+            }
+        }
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+        return lastBelow(null, true);
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+        return lastBelow(key, true);
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+        return lastBelow(key, false);
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+        return firstFrom(key, true);
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+        return firstFrom(key, false);
+    }
+
+    private Entry<K, V> firstFrom(K key, boolean inclusive) {
+        Node<K, V> node = search(key, inclusive);
+        while (true) {
+            node = nextLive(node);
+            if (node == tail) {
+                return null;
+            }
+            Entry<K, V> entry = snapshot(node);
+            if (entry != null) {
+                return entry;
+            }
+        }
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return new rangeIterable(null, null);
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) {
+        /**
+         * @return a view of all entries with key greater than or equal to fromKey, but
+         *         strictly less than toKey
+         */
+        // check invalid arguments
+        if (fromKey.compareTo(toKey) >= 0) {
+            return null;
+        }
+        return new rangeIterable(fromKey, toKey);
+    }
+
+    private class rangeIterable implements Iterable<Entry<K, V>> {
+        private final K fromKey, toKey; // null means unbounded
+
+        rangeIterable(K fromKey, K toKey) {
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new rangeIterator(fromKey, toKey);
+        }
+    }
+
+    private class rangeIterator implements Iterator<Entry<K, V>> {
+        private final K toKey;
+        private Node<K, V> cursor;
+        private Entry<K, V> nextEntry;
+
+        rangeIterator(K fromKey, K toKey) {
+            this.toKey = toKey;
+            this.cursor = (fromKey == null ? head.forwards[0].getReference() : search(fromKey, true));
+            advance();
+        }
+
+        private void advance() {
+            // walk the bottom level to the next alive node below toKey
+            nextEntry = null;
+            while (cursor != tail) {
+                Node<K, V> node = cursor;
+                cursor = node.forwards[0].getReference();
+                if ((toKey != null) && (node.key.compareTo(toKey) >= 0)) {
+                    cursor = tail;
+                    return;
+                }
+                nextEntry = snapshot(node);
+                if (nextEntry != null) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (nextEntry != null);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (nextEntry == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = nextEntry;
+            advance();
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package map;
+
+public enum HashStrategy {
+    /**
+     * how AbstractHashMap turns hashCode() into a bucket index
+     */
+
+    /**
+     * multiply-add-divide, ((a * h + b) mod p) mod N for a random a, b and prime
+     * p; tables of any size, 2N - 1 after each resize
+     */
+    MAD,
+
+    /**
+     * murmur3 finalizer of h xor a random seed, masked to the low bits; tables are
+     * always a power of 2 and double on resize
+     */
+    MIX
+}
@@ -0,0 +1,251 @@
+package map;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+public class IntObjectHashMap<V> {
+    /**
+     * open addressing (linear probing) hash map keyed by primitive int
+     *
+     * keys live in an int[] and values in a parallel Object[], no entry object is
+     * allocated and no key is boxed. FREE_KEY marks an empty slot instead of a
+     * DEFUNCT entry, removal shifts the following cluster backwards so that the
+     * table never contains tombstones. The key equal to FREE_KEY is kept aside
+     * in its own field.
+     */
+
+    private static final int FREE_KEY = 0; // sentinel, marks an empty slot
+    private static final int CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int capacity; // always a power of 2
+    private int mask;
+    private int threshold; // resize when n reaches it, load factor 0.75
+    private int n = 0; // entries in the table, not counting FREE_KEY
+    private boolean hasFreeKey;
+    private V freeValue;
+    private final int seed; // random factor for hash function
+
+    public IntObjectHashMap() {
+        this(CAPACITY);
+    }
+
+    public IntObjectHashMap(int cap) {
+        if (cap < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + cap);
+        }
+        this.seed = new Random().nextInt();
+        createTable(tableSizeFor(cap));
+    }
+
+    private static int tableSizeFor(int cap) {
+        // smallest power of 2 that keeps cap entries below the load factor
+        int size = 4;
+        while (size - (size >>> 2) <= cap) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private void createTable(int cap) {
+        capacity = cap;
+        mask = cap - 1;
+        threshold = cap - (cap >>> 2);
+        keys = new int[cap];
+        values = new Object[cap];
+    }
+
+    // utility hash function, murmur3 32-bit finalizer
+    private int hashValue(int key) {
+        int h = key ^ seed;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h & mask;
+    }
+
+    public int size() {
+        return (hasFreeKey ? n + 1 : n);
+    }
+
+    public boolean isEmpty() {
+        return (size() == 0);
+    }
+
+    private int findSlot(int k) {
+        /**
+         * if @return < 0, then no match find, the slot can be used to add new entry
+         * if @return >= 0, successful match
+         *
+         * if key is present in keys[j], findSlot return j, or return -(j + 1) such
+         * that k can be added at keys[j]
+         */
+        int j = hashValue(k);
+        while (keys[j] != FREE_KEY) {
+            if (keys[j] == k) {
+                return j;
+            }
+            j = (j + 1) & mask;
+        }
+        return -(j + 1);
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        return (findSlot(key) >= 0);
+    }
+
+    public V get(int key) {
+        if (key == FREE_KEY) {
+            return freeValue;
+        }
+        int i = findSlot(key);
+        if (i < 0) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        final V v = (V) values[i];
+        return v;
+    }
+
+    public V put(int key, V value) {
+        if (key == FREE_KEY) {
+            V old = freeValue;
+            hasFreeKey = true;
+            freeValue = value;
+            return old;
+        }
+        int i = findSlot(key);
+        if (i >= 0) {
+            @SuppressWarnings("unchecked")
+            final V old = (V) values[i];
+            values[i] = value;
+            return old;
+        }
+        i = -(i + 1);
+        keys[i] = key;
+        values[i] = value;
+        n++;
+        if (n >= threshold) {
+            resize(2 * capacity);
+        }
+        return null;
+    }
+
+    public V remove(int key) {
+        if (key == FREE_KEY) {
+            V old = freeValue;
+            hasFreeKey = false;
+            freeValue = null;
+            return old;
+        }
+        int i = findSlot(key);
+        if (i < 0) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        final V old = (V) values[i];
+        shiftKeys(i);
+        n--;
+        return old;
+    }
+
+    private void shiftKeys(int i) {
+        /**
+         * backward shift deletion: empty slot i, then move every following entry of
+         * the cluster that is allowed to live in the hole (its home slot is not in
+         * (hole, j]) back into it, until a FREE_KEY slot ends the cluster
+         */
+        int hole = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == FREE_KEY) {
+                break;
+            }
+            int home = hashValue(keys[j]);
+            boolean movable = (hole <= j) ? (home <= hole || home > j) : (home <= hole && home > j);
+            if (movable) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = FREE_KEY;
+        values[hole] = null;
+    }
+
+    private void resize(int newCap) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        createTable(newCap);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int j = -(findSlot(oldKeys[i]) + 1);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of all keys, in table order
+     */
+    public int[] keys() {
+        int[] buffer = new int[size()];
+        int k = 0;
+        if (hasFreeKey) {
+            buffer[k++] = FREE_KEY;
+        }
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != FREE_KEY) {
+                buffer[k++] = keys[i];
+            }
+        }
+        return buffer;
+    }
+
+    public Iterable<V> valueSet() {
+        return new valueIterable();
+    }
+
+    private class valueIterable implements Iterable<V> {
+        @Override
+        public Iterator<V> iterator() {
+            return new valueIterator();
+        }
+    }
+
+    private class valueIterator implements Iterator<V> {
+        private int cursor = (hasFreeKey ? -1 : advance(0));
+
+        private int advance(int i) {
+            while (i < capacity && keys[i] == FREE_KEY) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (cursor < capacity);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final V v = (V) (cursor < 0 ? freeValue : values[cursor]);
+            cursor = advance(cursor + 1);
+            return v;
+        }
+    }
+}
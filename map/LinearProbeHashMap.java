@@ -4,6 +4,7 @@ import list.ArrayList;
 
 public class LinearProbeHashMap<K, V> extends AbstractHashMap<K, V> {
     private MapEntry<K, V>[] table;
+    private MapEntry<K, V>[] retired; // previous table, while rehashing incrementally
     private final MapEntry<K, V> DEFUNCT = new MapEntry<>(null, null); // sentinel, convenient for deletions
 
     public LinearProbeHashMap() {
@@ -14,17 +15,21 @@ public class LinearProbeHashMap<K, V> extends AbstractHashMap<K, V> {
         super(cap);
     }
 
+    public LinearProbeHashMap(int cap, HashStrategy strategy) {
+        super(cap, strategy);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     protected void createTable() {
         this.table = (MapEntry<K, V>[]) new MapEntry[this.capacity];
     }
 
-    private boolean isAvailable(int i) {
+    private boolean isAvailable(MapEntry<K, V>[] table, int i) {
         return (table[i] == null || table[i] == DEFUNCT);
     }
 
-    private int findSlot(int h, K k) {
+    private int findSlot(MapEntry<K, V>[] table, int h, K k) {
         /**
          * if @return < 0, then no match find, the slot can be used to add new entry
          * if @return >= 0, successful match
@@ -36,27 +41,37 @@ public class LinearProbeHashMap<K, V> extends AbstractHashMap<K, V> {
         int ret = 0;
         do {
             // either empty (null) or defunct
-            if (isAvailable(j)) {
+            if (isAvailable(table, j)) {
                 if (ret == 0) {
                     ret = -(j + 1);
                 }
                 // table[j] is empty, return immediately
                 if (table[j] == null) {
+                    recordProbe(table.length, h, j);
                     return ret;
                 }
             }
             // find a match
             else if (table[j].getKey().equals(k)) {
+                recordProbe(table.length, h, j);
                 return j;
             }
-            j = (j + 1) % capacity;
+            j = (j + 1) % table.length;
         } while (j != h);
+        recordProbe(table.length, h, h - 1 < 0 ? table.length - 1 : h - 1);
         return ret; // if here ret = 0, something wrong happens
     }
 
+    private void recordProbe(int cap, int h, int j) {
+        // slots h..j inspected, wrapping around the end of the table
+        if (metrics != null) {
+            metrics.probe((j >= h ? j - h : j + cap - h) + 1);
+        }
+    }
+
     @Override
     protected V bucketGet(int h, K k) {
-        int i = findSlot(h, k);
+        int i = findSlot(table, h, k);
         if (i < 0) {
             return null;
         }
@@ -65,7 +80,7 @@ public class LinearProbeHashMap<K, V> extends AbstractHashMap<K, V> {
 
     @Override
     protected V bucketPut(int h, K k, V v) {
-        int i = findSlot(h, k);
+        int i = findSlot(table, h, k);
         if (i >= 0) {
             return table[i].setValue(v);
         }
@@ -76,7 +91,7 @@ public class LinearProbeHashMap<K, V> extends AbstractHashMap<K, V> {
 
     @Override
     protected V bucketRemove(int h, K k) {
-        int i = findSlot(h, k);
+        int i = findSlot(table, h, k);
         if (i < 0) {
             return null;
         }
@@ -86,14 +101,64 @@ public class LinearProbeHashMap<K, V> extends AbstractHashMap<K, V> {
         return oldValue;
     }
 
+    @Override
+    protected void retireTable() {
+        this.retired = this.table;
+    }
+
+    @Override
+    protected V retiredBucketGet(int h, K k) {
+        int i = findSlot(retired, h, k);
+        if (i < 0) {
+            return null;
+        }
+        return retired[i].getValue();
+    }
+
+    @Override
+    protected V retiredBucketRemove(int h, K k) {
+        int i = findSlot(retired, h, k);
+        if (i < 0) {
+            return null;
+        }
+        V oldValue = retired[i].getValue();
+        retired[i] = DEFUNCT;
+        n--;
+        return oldValue;
+    }
+
+    @Override
+    protected Iterable<Entry<K, V>> drainRetiredBucket(int h) {
+        if (isAvailable(retired, h)) {
+            return null;
+        }
+        ArrayList<Entry<K, V>> buffer = new ArrayList<>(1);
+        buffer.add(retired[h]);
+        retired[h] = DEFUNCT; // keep probe sequences through h intact
+        n--;
+        return buffer;
+    }
+
+    @Override
+    protected void dropRetiredTable() {
+        this.retired = null;
+    }
+
     @Override
     public Iterable<Entry<K, V>> entrySet() {
         ArrayList<Entry<K, V>> buffer = new ArrayList<>();
-        for (int h = 0; h < size(); h++) {
-            if (!isAvailable(h)) {
+        collect(table, buffer);
+        if (retired != null) {
+            collect(retired, buffer);
+        }
+        return buffer;
+    }
+
+    private void collect(MapEntry<K, V>[] table, ArrayList<Entry<K, V>> buffer) {
+        for (int h = 0; h < table.length; h++) {
+            if (!isAvailable(table, h)) {
                 buffer.add(table[h]);
             }
         }
-        return buffer;
     }
 }
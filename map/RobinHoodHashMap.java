@@ -0,0 +1,203 @@
+package map;
+
+import list.ArrayList;
+
+public class RobinHoodHashMap<K, V> extends AbstractHashMap<K, V> {
+    /**
+     * linear probing with robin hood insertion and backward shift deletion
+     *
+     * probe[j] records how far table[j] sits from its home slot. An insert takes
+     * the slot of any entry that is closer to home than the inserted one ("steal
+     * from the rich") and carries that entry on, so probe lengths stay short and
+     * even. A lookup stops as soon as it meets an entry closer to home than the
+     * current probe length, and a removal shifts the rest of the cluster back by
+     * one slot instead of leaving a DEFUNCT tombstone.
+     */
+
+    private MapEntry<K, V>[] table;
+    private int[] probe; // distance from home slot, meaningless when table[j] == null
+    private MapEntry<K, V>[] retired; // previous table, while rehashing incrementally
+    private int[] retiredProbe;
+
+    public RobinHoodHashMap() {
+        super();
+    }
+
+    public RobinHoodHashMap(int cap) {
+        super(cap);
+    }
+
+    public RobinHoodHashMap(int cap, HashStrategy strategy) {
+        super(cap, strategy);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void createTable() {
+        this.table = (MapEntry<K, V>[]) new MapEntry[this.capacity];
+        this.probe = new int[this.capacity];
+    }
+
+    private int findSlot(MapEntry<K, V>[] table, int[] probe, int h, K k) {
+        /**
+         * @return j if key is present in table[j], or -1
+         */
+        int j = h;
+        int d = 0;
+        while ((table[j] != null) && (probe[j] >= d)) {
+            if (table[j].getKey().equals(k)) {
+                recordProbe(d + 1);
+                return j;
+            }
+            j = (j + 1) % table.length;
+            d++;
+        }
+        recordProbe(d + 1);
+        return -1;
+    }
+
+    private void recordProbe(int length) {
+        if (metrics != null) {
+            metrics.probe(length);
+        }
+    }
+
+    private void shiftBack(MapEntry<K, V>[] table, int[] probe, int i) {
+        /**
+         * backward shift deletion of table[i], until an empty slot or an entry at
+         * its home slot
+         */
+        int next = (i + 1) % table.length;
+        while ((table[next] != null) && (probe[next] > 0)) {
+            table[i] = table[next];
+            probe[i] = probe[next] - 1;
+            i = next;
+            next = (next + 1) % table.length;
+        }
+        table[i] = null;
+    }
+
+    @Override
+    protected V bucketGet(int h, K k) {
+        int i = findSlot(table, probe, h, k);
+        if (i < 0) {
+            return null;
+        }
+        return table[i].getValue();
+    }
+
+    @Override
+    protected V bucketPut(int h, K k, V v) {
+        int j = h;
+        int d = 0;
+        // search, until an empty slot or an entry closer to home than k would be
+        while ((table[j] != null) && (probe[j] >= d)) {
+            if (table[j].getKey().equals(k)) {
+                recordProbe(d + 1);
+                return table[j].setValue(v);
+            }
+            j = (j + 1) % capacity;
+            d++;
+        }
+        recordProbe(d + 1);
+        // insert new entry, displaced entries move on to the next slot
+        MapEntry<K, V> entry = new MapEntry<>(k, v);
+        while (table[j] != null) {
+            if (probe[j] < d) {
+                MapEntry<K, V> tempEntry = table[j];
+                int tempProbe = probe[j];
+                table[j] = entry;
+                probe[j] = d;
+                entry = tempEntry;
+                d = tempProbe;
+            }
+            j = (j + 1) % capacity;
+            d++;
+        }
+        table[j] = entry;
+        probe[j] = d;
+        n++;
+        return null;
+    }
+
+    @Override
+    protected V bucketRemove(int h, K k) {
+        int i = findSlot(table, probe, h, k);
+        if (i < 0) {
+            return null;
+        }
+        V oldValue = table[i].getValue();
+        shiftBack(table, probe, i);
+        n--;
+        return oldValue;
+    }
+
+    @Override
+    protected void retireTable() {
+        this.retired = this.table;
+        this.retiredProbe = this.probe;
+    }
+
+    @Override
+    protected V retiredBucketGet(int h, K k) {
+        int i = findSlot(retired, retiredProbe, h, k);
+        if (i < 0) {
+            return null;
+        }
+        return retired[i].getValue();
+    }
+
+    @Override
+    protected V retiredBucketRemove(int h, K k) {
+        int i = findSlot(retired, retiredProbe, h, k);
+        if (i < 0) {
+            return null;
+        }
+        V oldValue = retired[i].getValue();
+        shiftBack(retired, retiredProbe, i);
+        n--;
+        return oldValue;
+    }
+
+    @Override
+    protected Iterable<Entry<K, V>> drainRetiredBucket(int h) {
+        /**
+         * each removal shifts the next entry of the cluster into slot h, drain it
+         * until it is empty so that nothing is shifted behind the rehash index
+         */
+        if (retired[h] == null) {
+            return null;
+        }
+        ArrayList<Entry<K, V>> buffer = new ArrayList<>();
+        while (retired[h] != null) {
+            buffer.add(retired[h]);
+            shiftBack(retired, retiredProbe, h);
+            n--;
+        }
+        return buffer;
+    }
+
+    @Override
+    protected void dropRetiredTable() {
+        this.retired = null;
+        this.retiredProbe = null;
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        ArrayList<Entry<K, V>> buffer = new ArrayList<>();
+        collect(table, buffer);
+        if (retired != null) {
+            collect(retired, buffer);
+        }
+        return buffer;
+    }
+
+    private void collect(MapEntry<K, V>[] table, ArrayList<Entry<K, V>> buffer) {
+        for (int h = 0; h < table.length; h++) {
+            if (table[h] != null) {
+                buffer.add(table[h]);
+            }
+        }
+    }
+}
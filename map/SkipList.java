@@ -3,11 +3,22 @@
  */
 package map;
 
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
-import list.ArrayList;
+import metrics.Instrumented;
+import metrics.MetricsRecorder;
+import metrics.StructureMetrics;
+import parallel.ParallelBulk;
 
-public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
+public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> implements SortedMap<K, V>, Instrumented {
 
     private final int MAX_LEVEL; // contain up to 2^{MAX_LEVEL} elements
     private final Node<K, V> HEADER;
@@ -15,6 +26,8 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
     private Random rand;
     private int levelCount;
     private int size;
+    private int modCount; // structural changes, for fail-fast iterators
+    private MetricsRecorder metrics; // null unless enabled
 
     public SkipList() {
         this(16); // default, skip list contains up to 2^16 elements
@@ -31,6 +44,82 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
         this.levelCount = 1;
     }
 
+    /**
+     * build a skip list from entries sorted by strictly ascending key in O(n),
+     * comparing each key only with its predecessor. Levels are deterministic:
+     * the i-th entry (from 1) gets 1 + trailing zeros of i, so level l holds
+     * every 2^l-th entry, as in a perfectly balanced skip list.
+     *
+     * @throws IllegalArgumentException if the keys are out of order or the
+     *                                  iterator holds fewer than size entries
+     */
+    public static <K extends Comparable<K>, V> SkipList<K, V> fromSorted(Iterator<? extends Entry<K, V>> it,
+            int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Illegal size: " + size);
+        }
+        SkipList<K, V> list = new SkipList<>(maxLevelFor(size));
+        Node<K, V>[] tails = list.newTails();
+        for (int i = 0; i < size; i++) {
+            if (!it.hasNext()) {
+                throw new IllegalArgumentException("fewer entries than size");
+            }
+            Entry<K, V> entry = it.next();
+            list.append(tails, entry.getKey(), entry.getValue());
+        }
+        return list;
+    }
+
+    /**
+     * build a skip list from keys[i] -> values[i], keys sorted in strictly
+     * ascending order
+     */
+    public static <K extends Comparable<K>, V> SkipList<K, V> fromSorted(K[] keys, V[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("keys and values differ in length");
+        }
+        SkipList<K, V> list = new SkipList<>(maxLevelFor(keys.length));
+        Node<K, V>[] tails = list.newTails();
+        for (int i = 0; i < keys.length; i++) {
+            list.append(tails, keys[i], values[i]);
+        }
+        return list;
+    }
+
+    private static int maxLevelFor(int size) {
+        // default 16, or enough levels for size elements
+        return Math.max(16, 32 - Integer.numberOfLeadingZeros(size));
+    }
+
+    private Node<K, V>[] newTails() {
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] tails = (Node<K, V>[]) new Node[MAX_LEVEL];
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            tails[i] = HEADER;
+        }
+        return tails;
+    }
+
+    private void append(Node<K, V>[] tails, K key, V value) {
+        /**
+         * link a new last node behind tails[i], the last node of each level i
+         */
+        if ((tails[0] != HEADER) && (tails[0].key.compareTo(key) >= 0)) {
+            throw new IllegalArgumentException("keys are not in strictly ascending order");
+        }
+        int level = Math.min(Integer.numberOfTrailingZeros(size + 1) + 1, MAX_LEVEL);
+        Node<K, V> newNode = new Node<>(key, value, level);
+        for (int i = 0; i < level; i++) {
+            newNode.forwards[i] = TRAILER;
+            tails[i].forwards[i] = newNode;
+            tails[i] = newNode;
+        }
+        if (level > levelCount) {
+            levelCount = level;
+        }
+        size++;
+    }
+
     private static class Node<K, V> implements Entry<K, V> {
         K key;
         V value;
@@ -61,15 +150,28 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
          * @return the entry with the least key value greater than or equal to key
          */
         Node<K, V> node = HEADER;
-        for (int i = levelCount; i >= 0; i--) {
-            while ((node.forwards[i] != TRAILER) && (node.forwards[i].key.compareTo(key) < 0)) {
+        int cmps = 0;
+        for (int i = levelCount - 1; i >= 0; i--) {
+            while (node.forwards[i] != TRAILER) {
+                cmps++;
+                if (node.forwards[i].key.compareTo(key) >= 0) {
+                    break;
+                }
                 node = node.forwards[i];
             }
         }
         node = node.forwards[0];
+        recordComparisons(cmps, node);
         return node;
     }
 
+    private void recordComparisons(int cmps, Node<K, V> found) {
+        // the callers compare key with found once more, unless it is TRAILER
+        if (metrics != null) {
+            metrics.compare(found == TRAILER ? cmps : cmps + 1);
+        }
+    }
+
     private int getRandomLevel() {
         int level = 1;
         while (rand.nextBoolean() && (level < MAX_LEVEL)) {
@@ -82,14 +184,20 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
         @SuppressWarnings("unchecked")
         Node<K, V>[] update = (Node<K, V>[]) new Node[MAX_LEVEL];
         Node<K, V> node = HEADER;
-        for (int i = levelCount; i >= 0; i--) {
-            while ((node.forwards[i] != TRAILER) && (node.forwards[i].key.compareTo(key) < 0)) {
+        int cmps = 0;
+        for (int i = levelCount - 1; i >= 0; i--) {
+            while (node.forwards[i] != TRAILER) {
+                cmps++;
+                if (node.forwards[i].key.compareTo(key) >= 0) {
+                    break;
+                }
                 node = node.forwards[i];
             }
             update[i] = node;
         }
         // update existed node
         node = node.forwards[0];
+        recordComparisons(cmps, node);
         if ((node != TRAILER) && (node.key.compareTo(key) == 0)) {
             V oldValue = node.value;
             node.value = value;
@@ -98,7 +206,7 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
         // insert new node
         int level = getRandomLevel();
         if (level > levelCount) {
-            for (int i = levelCount + 1; i < MAX_LEVEL; i++) {
+            for (int i = levelCount; i < MAX_LEVEL; i++) {
                 update[i] = HEADER;
             }
             // each time only increment max skip-list level by 1;
@@ -111,6 +219,7 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
             update[i].forwards[i] = newNode;
         }
         size++;
+        modCount++;
         return value;
     }
 
@@ -118,16 +227,22 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
         @SuppressWarnings("unchecked")
         Node<K, V>[] update = (Node<K, V>[]) new Node[levelCount + 1];
         Node<K, V> node = HEADER;
-        for (int i = levelCount; i >= 0; i--) {
-            while ((node.forwards[i] != TRAILER) && (node.forwards[i].key.compareTo(key) < 0)) {
+        int cmps = 0;
+        for (int i = levelCount - 1; i >= 0; i--) {
+            while (node.forwards[i] != TRAILER) {
+                cmps++;
+                if (node.forwards[i].key.compareTo(key) >= 0) {
+                    break;
+                }
                 node = node.forwards[i];
             }
             // prev node just before to-be-removed node
             update[i] = node;
         }
         node = node.forwards[0];
+        recordComparisons(cmps, node);
         // invalid key, such node does not exist in skip-list
-        if (node.key.compareTo(key) != 0) {
+        if ((node == TRAILER) || (node.key.compareTo(key) != 0)) {
             return null;
         }
 
@@ -135,12 +250,13 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
             update[i].forwards[i] = node.forwards[i];
         }
         size--;
+        modCount++;
         return node.value;
     }
 
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (int i = levelCount; i >= 0; i--) {
+        for (int i = levelCount - 1; i >= 0; i--) {
             Node<K, V> node = HEADER;
             sb.append("SkipList[");
             while (node != TRAILER) {
@@ -159,10 +275,25 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
         return size;
     }
 
+    @Override
+    public void setMetricsEnabled(boolean enabled) {
+        this.metrics = (enabled ? new MetricsRecorder() : null);
+    }
+
+    @Override
+    public boolean isMetricsEnabled() {
+        return (metrics != null);
+    }
+
+    @Override
+    public StructureMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public V get(K key) {
         Node<K, V> node = search(key);
-        if (key.compareTo(node.key) != 0) {
+        if ((node == TRAILER) || (key.compareTo(node.key) != 0)) {
             return null;
         }
         return node.value;
@@ -181,23 +312,16 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
     @Override
     public boolean containsKey(K key) {
         Node<K, V> node = search(key);
-        if (node.key != key) {
-            return false;
-        }
-        return true;
+        return ((node != TRAILER) && (key.compareTo(node.key) == 0));
     }
 
     @Override
     public Iterable<Entry<K, V>> entrySet() {
-        ArrayList<Entry<K, V>> snapshot = new ArrayList<>(size);
-        Node<K, V> node = HEADER;
-        while (node != TRAILER) {
-            if (node != HEADER) {
-                snapshot.add(node);
-            }
-            node = node.forwards[0];
-        }
-        return snapshot;
+        return () -> new entryIterator(HEADER.forwards[0], null);
+    }
+
+    private Entry<K, V> entryOrNull(Node<K, V> node) {
+        return ((node == HEADER) || (node == TRAILER) ? null : node);
     }
 
     @Override
@@ -212,12 +336,12 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
     @Override
     public Entry<K, V> lastEntry() {
         Node<K, V> node = HEADER;
-        for (int i = levelCount; i >= 0; i--) {
+        for (int i = levelCount - 1; i >= 0; i--) {
             while (node.forwards[i] != TRAILER) {
                 node = node.forwards[i];
             }
         }
-        return node;
+        return entryOrNull(node);
     }
 
     @Override
@@ -226,12 +350,12 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
          * @return the entry with the greatest key value less than or equal to key
          */
         Node<K, V> node = HEADER;
-        for (int i = levelCount; i >= 0; i--) {
+        for (int i = levelCount - 1; i >= 0; i--) {
             while ((node.forwards[i] != TRAILER) && (node.forwards[i].key.compareTo(key) <= 0)) {
                 node = node.forwards[i];
             }
         }
-        return node;
+        return entryOrNull(node);
     }
 
     @Override
@@ -240,12 +364,12 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
          * @return the entry with the least key value greater than or equal to key
          */
         Node<K, V> node = HEADER;
-        for (int i = levelCount; i >= 0; i--) {
+        for (int i = levelCount - 1; i >= 0; i--) {
             while ((node.forwards[i] != TRAILER) && (node.forwards[i].key.compareTo(key) < 0)) {
                 node = node.forwards[i];
             }
         }
-        return node.forwards[0];
+        return entryOrNull(node.forwards[0]);
     }
 
     @Override
@@ -254,12 +378,12 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
          * @return the entry with the greatest key value strictly less than key
          */
         Node<K, V> node = HEADER;
-        for (int i = levelCount; i >= 0; i--) {
+        for (int i = levelCount - 1; i >= 0; i--) {
             while ((node.forwards[i] != TRAILER) && (node.forwards[i].key.compareTo(key) < 0)) {
                 node = node.forwards[i];
             }
         }
-        return node;
+        return entryOrNull(node);
     }
 
     @Override
@@ -268,12 +392,12 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
          * @return the entry with the least key value strictly greater than key
          */
         Node<K, V> node = HEADER;
-        for (int i = levelCount; i >= 0; i--) {
+        for (int i = levelCount - 1; i >= 0; i--) {
             while ((node.forwards[i] != TRAILER) && (node.forwards[i].key.compareTo(key) <= 0)) {
                 node = node.forwards[i];
             }
         }
-        return node.forwards[0];
+        return entryOrNull(node.forwards[0]);
     }
 
     @Override
@@ -286,19 +410,214 @@ public class SkipList<K extends Comparable<K>, V> extends AbstractMap<K, V> impl
         if (fromKey.compareTo(toKey) >= 0) {
             return null;
         }
+        return () -> new entryIterator(search(fromKey), toKey);
+    }
 
-        ArrayList<Entry<K, V>> view = new ArrayList<>();
-        Node<K, V> node = HEADER;
-        for (int i = levelCount; i >= 0; i--) {
-            while ((node.forwards[i] != TRAILER) && (node.forwards[i].key.compareTo(fromKey) < 0)) {
-                node = node.forwards[i];
+    /**
+     * @return a spliterator over the entries in key order, splitting along the
+     *         upper levels
+     */
+    public Spliterator<Entry<K, V>> spliterator() {
+        return new entrySpliterator(HEADER.forwards[0], null, size, true, modCount);
+    }
+
+    /**
+     * @return a spliterator over the entries with key greater than or equal to
+     *         fromKey, but strictly less than toKey
+     */
+    public Spliterator<Entry<K, V>> spliterator(K fromKey, K toKey) {
+        Node<K, V> first = (fromKey.compareTo(toKey) >= 0 ? TRAILER : search(fromKey));
+        return new entrySpliterator(first, toKey, size, false, modCount);
+    }
+
+    /**
+     * parallel bulk operations, see ParallelBulk for parallelismThreshold; the
+     * list must not be modified while they run
+     */
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        ParallelBulk.forEach(spliterator(), parallelismThreshold, e -> action.accept(e.getKey(), e.getValue()));
+    }
+
+    public void forEach(long parallelismThreshold, K fromKey, K toKey, BiConsumer<? super K, ? super V> action) {
+        ParallelBulk.forEach(spliterator(fromKey, toKey), parallelismThreshold,
+                e -> action.accept(e.getKey(), e.getValue()));
+    }
+
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        return ParallelBulk.reduce(spliterator(), parallelismThreshold,
+                e -> transformer.apply(e.getKey(), e.getValue()), reducer);
+    }
+
+    public <U> U reduce(long parallelismThreshold, K fromKey, K toKey,
+            BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        return ParallelBulk.reduce(spliterator(fromKey, toKey), parallelismThreshold,
+                e -> transformer.apply(e.getKey(), e.getValue()), reducer);
+    }
+
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        return ParallelBulk.search(spliterator(), parallelismThreshold,
+                e -> searchFunction.apply(e.getKey(), e.getValue()));
+    }
+
+    public <U> U search(long parallelismThreshold, K fromKey, K toKey,
+            BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        return ParallelBulk.search(spliterator(fromKey, toKey), parallelismThreshold,
+                e -> searchFunction.apply(e.getKey(), e.getValue()));
+    }
+
+    private class entrySpliterator implements Spliterator<Entry<K, V>> {
+        /**
+         * entries from next up to toKey (exclusive, null for no bound). trySplit
+         * walks the highest level that still has 32 nodes inside the range,
+         * starting from anchor, the last node before the range on that level,
+         * and cuts at the middle one; a node on level i stands for about 2^i
+         * entries, which is the size estimate of each half
+         */
+        private Node<K, V> next; // null when exhausted
+        private final K toKey;
+        private Node<K, V> anchor; // forwards[0 .. level - 1] all lead into the range
+        private int level;
+        private long est;
+        private boolean sized;
+        private final int expectedModCount;
+
+        entrySpliterator(Node<K, V> first, K toKey, long est, boolean sized, int expectedModCount) {
+            this(first, toKey, HEADER, levelCount, est, sized, expectedModCount);
+        }
+
+        private entrySpliterator(Node<K, V> first, K toKey, Node<K, V> anchor, int level, long est, boolean sized,
+                int expectedModCount) {
+            this.toKey = toKey;
+            this.next = bounded(first);
+            this.anchor = anchor;
+            this.level = level;
+            this.est = est;
+            this.sized = sized;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private Node<K, V> bounded(Node<K, V> node) {
+            if ((node == TRAILER) || ((toKey != null) && (node.key.compareTo(toKey) >= 0))) {
+                return null;
             }
+            return node;
         }
-        node = node.forwards[0];
-        while (node.key.compareTo(toKey) < 0) {
-            view.add(node);
-            node = node.forwards[0];
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<K, V>> action) {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == null) {
+                return false;
+            }
+            Node<K, V> node = next;
+            next = bounded(node.forwards[0]);
+            if (est > 0) {
+                est--;
+            }
+            action.accept(node);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Entry<K, V>> action) {
+            while (tryAdvance(action)) {
+                // advance to toKey
+            }
+        }
+
+        @Override
+        public Spliterator<Entry<K, V>> trySplit() {
+            if (next == null) {
+                return null;
+            }
+            for (int i = level - 1; i >= 0; i--) {
+                Node<K, V> x = anchor;
+                while ((x.forwards[i] != TRAILER) && (x.forwards[i].key.compareTo(next.key) < 0)) {
+                    x = x.forwards[i];
+                }
+                // x is on level i, a valid anchor for this and every lower level
+                anchor = x;
+                level = i + 1;
+                int count = 0;
+                for (Node<K, V> y = x.forwards[i]; bounded(y) != null; y = y.forwards[i]) {
+                    count++;
+                }
+                // a few nodes on a level split too unevenly, use the next level
+                if ((count >= 32) || ((i == 0) && (count >= 2))) {
+                    Node<K, V> beforeMid = x, mid = x.forwards[i];
+                    for (int j = 0; j < count / 2; j++) {
+                        beforeMid = mid;
+                        mid = mid.forwards[i];
+                    }
+                    entrySpliterator prefix = new entrySpliterator(next, mid.key, x, level,
+                            Math.max(1L, (long) (count / 2) << i), false, expectedModCount);
+                    next = mid;
+                    anchor = beforeMid;
+                    est = Math.max(1L, (long) (count - count / 2) << i);
+                    sized = false;
+                    return prefix;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return est;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | NONNULL | (sized ? SIZED : 0);
+        }
+
+        @Override
+        public Comparator<? super Entry<K, V>> getComparator() {
+            return (a, b) -> a.getKey().compareTo(b.getKey());
+        }
+    }
+
+    private class entryIterator implements Iterator<Entry<K, V>> {
+        /**
+         * walk level 0 from node up to toKey (exclusive, null for no bound),
+         * failing fast if the list is structurally modified meanwhile
+         */
+        private Node<K, V> next;
+        private final K toKey;
+        private final int expectedModCount = modCount;
+
+        entryIterator(Node<K, V> node, K toKey) {
+            this.toKey = toKey;
+            this.next = bounded(node);
+        }
+
+        private Node<K, V> bounded(Node<K, V> node) {
+            if ((node == TRAILER) || ((toKey != null) && (node.key.compareTo(toKey) >= 0))) {
+                return null;
+            }
+            return node;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (next != null);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = next;
+            next = bounded(node.forwards[0]);
+            return node;
         }
-        return view;
     }
 }
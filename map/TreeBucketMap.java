@@ -0,0 +1,76 @@
+package map;
+
+import list.ArrayList;
+import bst.RedBlackTree;
+import bst.TreeMap;
+
+class TreeBucketMap<K, V> extends AbstractMap<K, V> {
+    /**
+     * a chain bucket backed by bst.RedBlackTree, for keys of a single Comparable
+     * class; such keys are assumed to be consistent with equals. Lookups of a
+     * key of any other class miss without reaching the tree, which could not
+     * compare it
+     */
+    private final Class<?> keyClass;
+    @SuppressWarnings("rawtypes")
+    private final RedBlackTree tree = new RedBlackTree();
+
+    public TreeBucketMap(Class<?> keyClass) {
+        this.keyClass = keyClass;
+    }
+
+    public boolean accepts(K key) {
+        return (key.getClass() == keyClass);
+    }
+
+    @Override
+    public int size() {
+        return tree.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (!accepts(key)) {
+            return null;
+        }
+        return (V) tree.get((Comparable<?>) key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        int oldSize = tree.size();
+        V ret = (V) tree.put((Comparable<?>) key, value);
+        return (tree.size() > oldSize ? null : ret);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        if (!accepts(key)) {
+            return null;
+        }
+        return (V) tree.remove((Comparable<?>) key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean containsKey(K key) {
+        if (!accepts(key)) {
+            return false;
+        }
+        return tree.containsKey((Comparable<?>) key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterable<Entry<K, V>> entrySet() {
+        ArrayList<Entry<K, V>> buffer = new ArrayList<>();
+        for (Object o : tree.entrySet()) {
+            TreeMap.Entry<K, V> e = (TreeMap.Entry<K, V>) o;
+            buffer.add(new MapEntry<>(e.getKey(), e.getValue()));
+        }
+        return buffer;
+    }
+}
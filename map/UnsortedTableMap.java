@@ -0,0 +1,68 @@
+package map;
+
+import list.ArrayList;
+
+class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
+    private ArrayList<MapEntry<K, V>> table = new ArrayList<>();
+
+    public UnsortedTableMap() {
+    }
+
+    @Override
+    public int size() {
+        return table.size();
+    }
+
+    private int findIdx(K key) {
+        for (int i = 0; i < size(); i++) {
+            if (table.get(i).getKey().equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public V get(K key) {
+        int idx = findIdx(key);
+        if (idx == -1) {
+            return null;
+        }
+        return table.get(idx).getValue();
+    }
+
+    @Override
+    public V put(K key, V value) {
+        int idx = findIdx(key);
+        if (idx == -1) {
+            table.add(new MapEntry<K, V>(key, value));
+            return null;
+        }
+        return table.get(idx).setValue(value);
+    }
+
+    @Override
+    public V remove(K key) {
+        int idx = findIdx(key);
+        if (idx == -1) {
+            return null;
+        }
+        V ret = table.get(idx).getValue();
+        table.remove(idx);
+        return ret;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return (findIdx(key) != -1);
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        ArrayList<Entry<K, V>> buffer = new ArrayList<>();
+        for (Entry<K, V> entry : table) {
+            buffer.add(entry);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,14 @@
+package metrics;
+
+public interface Instrumented {
+    /**
+     * a data structure with opt-in metrics: while disabled it keeps no
+     * recorder and pays one null check per recording site
+     */
+
+    void setMetricsEnabled(boolean enabled); // enabling starts from zero
+
+    boolean isMetricsEnabled();
+
+    StructureMetrics getMetrics(); // live counters, or null while disabled
+}
@@ -0,0 +1,105 @@
+package metrics;
+
+public final class MetricsRecorder implements StructureMetrics {
+    /**
+     * the counters behind StructureMetrics, updated by the owning structure;
+     * not thread-safe, like the structures that use it
+     */
+
+    private long comparisons;
+    private long rotations;
+    private long splays;
+    private long lookups;
+    private long probes;
+    private int maxProbeLength;
+    private long resizes;
+    private long resizeNanos;
+
+    public void compare(int count) {
+        comparisons += count;
+    }
+
+    public void rotate() {
+        rotations++;
+    }
+
+    public void rotate(int count) {
+        rotations += count;
+    }
+
+    public void splay() {
+        splays++;
+    }
+
+    public void probe(int length) {
+        lookups++;
+        probes += length;
+        if (length > maxProbeLength) {
+            maxProbeLength = length;
+        }
+    }
+
+    public void resize(long nanos) {
+        resizes++;
+        resizeNanos += nanos;
+    }
+
+    @Override
+    public long comparisons() {
+        return comparisons;
+    }
+
+    @Override
+    public long rotations() {
+        return rotations;
+    }
+
+    @Override
+    public long splays() {
+        return splays;
+    }
+
+    @Override
+    public long lookups() {
+        return lookups;
+    }
+
+    @Override
+    public long probes() {
+        return probes;
+    }
+
+    @Override
+    public int maxProbeLength() {
+        return maxProbeLength;
+    }
+
+    @Override
+    public long resizes() {
+        return resizes;
+    }
+
+    @Override
+    public long resizeNanos() {
+        return resizeNanos;
+    }
+
+    @Override
+    public void reset() {
+        comparisons = 0;
+        rotations = 0;
+        splays = 0;
+        lookups = 0;
+        probes = 0;
+        maxProbeLength = 0;
+        resizes = 0;
+        resizeNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "comparisons=" + comparisons + " rotations=" + rotations + " splays=" + splays + " lookups=" + lookups
+                + " probes=" + probes + " maxProbeLength=" + maxProbeLength + " resizes=" + resizes
+                + " resizeNanos=" + resizeNanos;
+    }
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+public interface StructureMetrics {
+    /**
+     * operation counters of one data structure, totals since it was enabled or
+     * last reset; a structure reports the counters that apply to it and leaves
+     * the others at 0
+     */
+
+    long comparisons(); // key comparisons
+
+    long rotations(); // tree rotations, including those of a splay
+
+    long splays(); // splay operations
+
+    long lookups(); // operations that probed a hash table
+
+    long probes(); // slots or chain entries inspected by those lookups
+
+    int maxProbeLength(); // longest probe sequence or chain inspected
+
+    long resizes(); // table resizes
+
+    long resizeNanos(); // total time spent in resizes
+
+    void reset();
+}
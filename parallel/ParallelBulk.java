@@ -0,0 +1,195 @@
+package parallel;
+
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+public final class ParallelBulk {
+    /**
+     * fork-join bulk operations over a spliterator, in the style of the
+     * ConcurrentHashMap bulk methods
+     *
+     * a task keeps splitting its spliterator while the estimated size is above
+     * parallelismThreshold, forks the prefix and goes on with the rest, so the
+     * balance of the tasks is the balance of trySplit. A threshold of
+     * Long.MAX_VALUE runs in the calling thread, 1 splits as far as it can.
+     * The source must not be modified while an operation runs.
+     */
+
+    private ParallelBulk() {
+    }
+
+    private static boolean splittable(Spliterator<?> s, long threshold) {
+        return (s.estimateSize() > Math.max(1L, threshold));
+    }
+
+    /**
+     * performs action for each element, in no particular order
+     */
+    public static <T> void forEach(Spliterator<T> s, long parallelismThreshold, Consumer<? super T> action) {
+        if (action == null) {
+            throw new NullPointerException();
+        }
+        if (!splittable(s, parallelismThreshold)) {
+            s.forEachRemaining(action);
+            return;
+        }
+        ForkJoinPool.commonPool().invoke(new ForEachTask<>(s, parallelismThreshold, action));
+    }
+
+    /**
+     * @return the result of accumulating the non-null transformations of all
+     *         elements with reducer, in encounter order, or null if there are
+     *         none
+     */
+    public static <T, U> U reduce(Spliterator<T> s, long parallelismThreshold,
+            Function<? super T, ? extends U> transformer, BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if (transformer == null || reducer == null) {
+            throw new NullPointerException();
+        }
+        if (!splittable(s, parallelismThreshold)) {
+            return reduceSequential(s, transformer, reducer);
+        }
+        return ForkJoinPool.commonPool().invoke(new ReduceTask<>(s, parallelismThreshold, transformer, reducer));
+    }
+
+    /**
+     * @return a non-null result of searchFunction on some element, or null if
+     *         there is none; the other tasks stop as soon as one is found
+     */
+    public static <T, U> U search(Spliterator<T> s, long parallelismThreshold,
+            Function<? super T, ? extends U> searchFunction) {
+        if (searchFunction == null) {
+            throw new NullPointerException();
+        }
+        AtomicReference<U> result = new AtomicReference<>();
+        if (!splittable(s, parallelismThreshold)) {
+            searchSequential(s, searchFunction, result);
+        } else {
+            ForkJoinPool.commonPool().invoke(new SearchTask<>(s, parallelismThreshold, searchFunction, result));
+        }
+        return result.get();
+    }
+
+    private static <T, U> U reduceSequential(Spliterator<T> s, Function<? super T, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        // one-element array, the lambda cannot assign a local
+        @SuppressWarnings("unchecked")
+        U[] acc = (U[]) new Object[1];
+        s.forEachRemaining(t -> {
+            U u = transformer.apply(t);
+            if (u != null) {
+                acc[0] = (acc[0] == null ? u : reducer.apply(acc[0], u));
+            }
+        });
+        return acc[0];
+    }
+
+    private static <T, U> void searchSequential(Spliterator<T> s, Function<? super T, ? extends U> searchFunction,
+            AtomicReference<U> result) {
+        while (result.get() == null && s.tryAdvance(t -> {
+            U u = searchFunction.apply(t);
+            if (u != null) {
+                result.compareAndSet(null, u);
+            }
+        })) {
+            // advance until found here or elsewhere
+        }
+    }
+
+    private static final class ForEachTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Spliterator<T> s;
+        private final long threshold;
+        private final Consumer<? super T> action;
+
+        ForEachTask(Spliterator<T> s, long threshold, Consumer<? super T> action) {
+            this.s = s;
+            this.threshold = threshold;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            Spliterator<T> prefix;
+            if (splittable(s, threshold) && (prefix = s.trySplit()) != null) {
+                ForEachTask<T> left = new ForEachTask<>(prefix, threshold, action);
+                left.fork();
+                new ForEachTask<>(s, threshold, action).compute();
+                left.join();
+            } else {
+                s.forEachRemaining(action);
+            }
+        }
+    }
+
+    private static final class ReduceTask<T, U> extends RecursiveTask<U> {
+        private static final long serialVersionUID = 1L;
+
+        private final Spliterator<T> s;
+        private final long threshold;
+        private final Function<? super T, ? extends U> transformer;
+        private final BiFunction<? super U, ? super U, ? extends U> reducer;
+
+        ReduceTask(Spliterator<T> s, long threshold, Function<? super T, ? extends U> transformer,
+                BiFunction<? super U, ? super U, ? extends U> reducer) {
+            this.s = s;
+            this.threshold = threshold;
+            this.transformer = transformer;
+            this.reducer = reducer;
+        }
+
+        @Override
+        protected U compute() {
+            Spliterator<T> prefix;
+            if (splittable(s, threshold) && (prefix = s.trySplit()) != null) {
+                ReduceTask<T, U> left = new ReduceTask<>(prefix, threshold, transformer, reducer);
+                left.fork();
+                U r = new ReduceTask<>(s, threshold, transformer, reducer).compute();
+                U l = left.join();
+                // the prefix comes first, reducer need not be commutative
+                return (l == null ? r : (r == null ? l : reducer.apply(l, r)));
+            }
+            return reduceSequential(s, transformer, reducer);
+        }
+    }
+
+    private static final class SearchTask<T, U> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Spliterator<T> s;
+        private final long threshold;
+        private final Function<? super T, ? extends U> searchFunction;
+        private final AtomicReference<U> result;
+
+        SearchTask(Spliterator<T> s, long threshold, Function<? super T, ? extends U> searchFunction,
+                AtomicReference<U> result) {
+            this.s = s;
+            this.threshold = threshold;
+            this.searchFunction = searchFunction;
+            this.result = result;
+        }
+
+        @Override
+        protected void compute() {
+            if (result.get() != null) {
+                return;
+            }
+            Spliterator<T> prefix;
+            if (splittable(s, threshold) && (prefix = s.trySplit()) != null) {
+                SearchTask<T, U> left = new SearchTask<>(prefix, threshold, searchFunction, result);
+                left.fork();
+                new SearchTask<>(s, threshold, searchFunction, result).compute();
+                left.join();
+            } else {
+                searchSequential(s, searchFunction, result);
+            }
+        }
+    }
+}